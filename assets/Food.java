@@ -1,33 +1,51 @@
-package assets;
-
-import assets.Node.Value;
-
-/**
- * Food, bait whatever you say class for the snake game
- * @author Burak
- *
- */
-public class Food {
-
-	/**
-	 * Food node for the food object
-	 */
-	private Node food;
-	
-	/**
-	 * Constructor for the food object, it sets value of the node to food and coordinates in right way 
-	 * @param x X Coordinate of the node 
-	 * @param y Y coordinate of the node
-	 */
-	public Food(int x, int y) {
-		this.food = new Node(Value.FOOD, false, x,y);
-	}
-	
-	/**
-	 * Getter for the food node
-	 * @return the node for food object
-	 */
-	public Node getFood() {
-		return this.food;
-	}	
-}
+package assets;
+
+import java.awt.Color;
+
+import assets.Node.Value;
+import ui.GridPanel;
+
+/**
+ * Food, bait whatever you say class for the snake game
+ * @author Burak
+ *
+ */
+public class Food {
+
+	/**
+	 * Food node for the food object
+	 */
+	private Node food;
+
+	/**
+	 * Packed colors of the food, computed once instead of at every draw
+	 */
+	private static final int FOOD_RGB = new Color(0,100,0).getRGB(), FOOD_INNER_RGB = Color.ORANGE.getRGB();
+	
+	/**
+	 * Constructor for the food object, it sets value of the node to food and coordinates in right way 
+	 * @param x X Coordinate of the node 
+	 * @param y Y coordinate of the node
+	 */
+	public Food(int x, int y) {
+		this.food = new Node(Value.FOOD, false, x,y);
+	}
+	
+	/**
+	 * Getter for the food node
+	 * @return the node for food object
+	 */
+	public Node getFood() {
+		return this.food;
+	}	
+
+	/**
+	 * Draws a food at the given position
+	 * @param panel panel to draw on
+	 * @param x x coordinate of the food
+	 * @param y y coordinate of the food
+	 */
+	public static void draw(GridPanel panel, int x, int y) {
+		panel.drawSmallOval(x, y, FOOD_RGB, FOOD_INNER_RGB);
+	}
+}
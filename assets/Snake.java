@@ -1,175 +1,336 @@
-package assets;
-
-import java.awt.Color;
-import java.util.LinkedList;
-
-import assets.Node.Value;
-import game.Direction;
-import game.Drawable;
-import ui.GridPanel;
-import worker.Action;
-import worker.LocalInformation;
-import worker.Action.Type;
-
-
-/**
- * This is the snake class for an individual snake. It arranges everything for a snake.
- * @author Burak
- *
- */
-public class Snake implements Drawable {
-
-	/**
-	 * Value to set the max size of a snake before reproducing
-	 */
-	private static final int DIVIDING_SIZE = 8;
-	/**
-	 * Size for the snake. Helps reproduction for the snake.
-	 */
-	private int size;
-
-	/**
-	 * LinkedList that keeps every node of the snake. Main arrangements for the game are done on the list.
-	 */
-	private LinkedList<Node> snake = new LinkedList<Node>();
-
-	/**
-	 * Constructor for the first created snake. It takes x,y, and size for the sake of the game. Therefore, it 
-	 * only creates horizontal direction. Not vertical or other. 
-	 * @param x x coordinate of the first snake
-	 * @param y y coordinate of the first snake
-	 * @param size size for the first created snake
-	 */
-	public Snake(int x, int y, int size) {
-		Node head = new Node(Value.SNAKE,true,x,y);
-		snake.add(head);
-		for(int i = 1; i < size ; i++) {
-			snake.add(new Node(Value.SNAKE,false,x-i,y));
-		}
-		this.size = size;
-	}
-
-	/**
-	 * Constructor for the new snakes. It creates new snake with the help of LinkedList so it can create at any direction.
-	 * @param snake LinkedList for the newborn snake.
-	 */
-	public Snake(LinkedList<Node> snake) {
-		this.snake = snake;
-		this.size = snake.size();
-	}
-
-	/**
-	 * Divides size, and arranges LinkedList's both for current snake and newborn snake.
-	 * @return Calls the constructor of the snake, returns the new snake
-	 */
-	public Snake reproduce() {
-		this.size = this.size/2;
-		LinkedList<Node> sn = new LinkedList<Node>();
-		// Adds nodes to the new snake's list while removing them from the current snake's list
-		for(int i = 0; i < this.size ; i++) {
-			sn.addLast(snake.removeLast());
-		}
-		sn.getFirst().setHead(true);
-		return new Snake(sn);
-	}
-
-
-	/**
-	 * Getter for the current snake's size
-	 * @return the size of the current snake
-	 */
-	public int getSize() {
-		return this.size;
-	}
-
-	/**
-	 * Getter for the current snake's LinkedList. It is necessary for most snake related arrangements.
-	 * @return LinkedList of the current snake
-	 */
-	public LinkedList<Node> getList(){
-		return this.snake;
-	}
-
-	/**
-	 * Stay method for the snake, if there is no better option, it comes here and does nothing
-	 */
-	public void stay() {	
-	}
-
-	/**
-	 * Makes the snake move 1 box further by using the proper direction
-	 * @param dir The direction of the new move, the free and wise direction.
-	 */
-	public void move(Direction dir) {
-		int x=0, y=0;
-		if(dir == Direction.DOWN) y++;
-		if(dir == Direction.UP) y--;
-		if(dir == Direction.LEFT) x--;
-		if(dir == Direction.RIGHT) x++;
-		// the head node now becomes body, so that snake moves
-		snake.getFirst().setHead(false);
-		// new head is added to the next direction
-		snake.addFirst(new Node(Value.SNAKE, true, snake.getFirst().getX() + x, snake.getFirst().getY() + y));
-		// makes the last node empty so that other snakes not crashes to this node
-		snake.getLast().setValue(Value.EMPTY);
-	}
-
-	/**
-	 * Eating method for the snake, it makes snake bigger, and arranges food node for the next spawn
-	 * @param food Node for the food object
-	 */
-	public void eat(Node food) {
-		// sets head to body so that new head can spawn
-		snake.getFirst().setHead(false);
-		// adds the new node to the list, it is the head for the snake
-		food.setHead(true);
-		food.setValue(Value.SNAKE);
-		snake.addFirst(food);
-		//size increments by 1
-		this.size++;
-	}
-
-	/**
-	 * It uses some information and makes proper decisions for the snake's head, also return the action.
-	 * @param information Information for the snake, in particular snake's head
-	 * @return Proper action to do
-	 */
-	public Action chooseAction(LocalInformation information) {
-		Direction eat = null;
-		if(getSize() >= DIVIDING_SIZE) {
-			return new Action(Type.REPRODUCE);
-		}else { 
-			// makes the direction possible that includes a food
-			if(information.getNodeDown().getValue() == Value.FOOD) eat = Direction.DOWN;
-			else if(information.getNodeUp().getValue() == Value.FOOD) eat = Direction.UP;
-			else if(information.getNodeRight().getValue() == Value.FOOD)  eat = Direction.RIGHT;
-			else if(information.getNodeLeft().getValue() == Value.FOOD)  eat = Direction.LEFT;
-		}
-		// checks if there is a food around snake's head, if not goes for the move
-		if(eat == null){
-			Direction dir = LocalInformation.getRandomDirection(information.getFreeDirections());
-			if(information.getNextDirection() != null) {
-				return new Action(Type.MOVE, information.getNextDirection());
-			}
-			else if( dir != null) {
-				return new Action(Type.MOVE, dir);
-			}else {
-				return new Action(Type.STAY);
-			}
-
-		}else {
-			return new Action(Type.EAT, eat);
-		}
-	}
-
-	/**
-	 * Draws the snake's each node, head is blue and others are red. 
-	 * It can be arranged to variable colors by using size, but it may crash to the game
-	 */
-	public void draw(GridPanel panel) {
-		for(Node n : snake) {
-			if(n.isHead()) panel.drawSquare(n.getX(), n.getY(), Color.blue);
-			else panel.drawSquare(n.getX(), n.getY(), new Color(255 , 0 , 0));
-		}
-		}
-}
+package assets;
+
+import java.awt.Color;
+
+import game.Direction;
+import game.Drawable;
+import ui.GridPanel;
+import worker.Action;
+import worker.LocalInformation;
+import worker.RandomSource;
+
+
+/**
+ * This is the snake class for an individual snake. It arranges everything for a snake.
+ * A game keeps its snakes as numbers in a SnakePopulation, the snakes given to it are copied.
+ * @author Burak
+ *
+ */
+public class Snake implements Drawable {
+
+	/**
+	 * Value to set the max size of a snake before reproducing
+	 */
+	public static final int DIVIDING_SIZE = 8;
+	/**
+	 * Order of the directions to check for food around the head
+	 */
+	private static final Direction[] EAT_ORDER = {Direction.DOWN, Direction.UP, Direction.RIGHT, Direction.LEFT};
+	/**
+	 * Packed colors of the head and the body, computed once instead of at every draw
+	 */
+	private static final int HEAD_RGB = Color.blue.getRGB(), BODY_RGB = new Color(255 , 0 , 0).getRGB();
+	/**
+	 * Size for the snake. Helps reproduction for the snake.
+	 */
+	private int size;
+
+	/**
+	 * Ring buffer that keeps every part of the snake as packed coordinates, x of slot i is at 2*i and y at 2*i+1.
+	 * The part with index k (head is 0, tail is size-1) lives in slot (head + k) modulo slot count, so moving only moves
+	 * the head index backwards and the tail falls out by itself.
+	 */
+	private int[] body;
+	/**
+	 * Number of slots minus one, the slot count is always a power of two
+	 */
+	private int mask;
+	/**
+	 * Slot of the head in the ring buffer
+	 */
+	private int head;
+	/**
+	 * Random numbers of this snake only, given by the game when the snake is added to it
+	 */
+	private RandomSource random;
+
+	/**
+	 * Constructor for the first created snake. It takes x,y, and size for the sake of the game. Therefore, it 
+	 * only creates horizontal direction. Not vertical or other. 
+	 * @param x x coordinate of the first snake
+	 * @param y y coordinate of the first snake
+	 * @param size size for the first created snake
+	 */
+	public Snake(int x, int y, int size) {
+		allocate(Math.max(size, DIVIDING_SIZE));
+		for(int i = 0; i < size ; i++) {
+			setPart(i, x - i, y);
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Constructor for a snake with known parts, for example one loaded from a saved game.
+	 * @param coordinates packed coordinates of the parts, x of part i is at 2*i and y at 2*i+1, head is part 0
+	 * @param size number of parts
+	 */
+	public Snake(int[] coordinates, int size) {
+		allocate(Math.max(size, DIVIDING_SIZE));
+		for(int i = 0; i < size ; i++) {
+			setPart(i, coordinates[i * 2], coordinates[i * 2 + 1]);
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Constructor for the new snakes, the ring buffer is filled by the caller.
+	 * @param capacity minimum number of parts the snake can keep without growing
+	 */
+	private Snake(int capacity) {
+		allocate(capacity);
+	}
+
+	/**
+	 * Creates the ring buffer with at least the given number of slots
+	 * @param capacity minimum slot count
+	 */
+	private void allocate(int capacity) {
+		int slots = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		this.body = new int[slots * 2];
+		this.mask = slots - 1;
+		this.head = 0;
+	}
+
+	/**
+	 * Writes the coordinates of a part
+	 * @param index index of the part, 0 is the head
+	 * @param x x coordinate of the part
+	 * @param y y coordinate of the part
+	 */
+	private void setPart(int index, int x, int y) {
+		int slot = (head + index) & mask;
+		body[slot * 2] = x;
+		body[slot * 2 + 1] = y;
+	}
+
+	/**
+	 * Divides size, and arranges ring buffers of both current snake and newborn snake.
+	 * The tail half becomes the newborn, its head is the old tail. Only half of a snake at dividing size is copied,
+	 * the current snake just forgets its tail.
+	 * @return the new snake
+	 */
+	public Snake reproduce() {
+		int half = this.size/2;
+		Snake sn = new Snake(Math.max(half, DIVIDING_SIZE));
+		// new snake's parts are the current snake's tail parts in reverse order
+		for(int i = 0; i < half ; i++) {
+			sn.setPart(i, getX(this.size - 1 - i), getY(this.size - 1 - i));
+		}
+		sn.size = half;
+		this.size -= half;
+		return sn;
+	}
+
+
+	/**
+	 * Getter for the random numbers of the snake
+	 * @return random source of the snake, null if it is not added to a game yet
+	 */
+	public RandomSource getRandom() {
+		return random;
+	}
+
+	/**
+	 * Setter for the random numbers of the snake
+	 * @param random random source used by this snake only
+	 */
+	public void setRandom(RandomSource random) {
+		this.random = random;
+	}
+
+	/**
+	 * Getter for the current snake's size
+	 * @return the size of the current snake
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Getter for the x coordinate of a part of the snake
+	 * @param index index of the part, 0 is the head and size-1 is the tail
+	 * @return x coordinate of the part
+	 */
+	public int getX(int index) {
+		return body[((head + index) & mask) * 2];
+	}
+
+	/**
+	 * Getter for the y coordinate of a part of the snake
+	 * @param index index of the part, 0 is the head and size-1 is the tail
+	 * @return y coordinate of the part
+	 */
+	public int getY(int index) {
+		return body[((head + index) & mask) * 2 + 1];
+	}
+
+	/**
+	 * Getter for the x coordinate of the head
+	 * @return x coordinate of the head
+	 */
+	public int getHeadX() {
+		return body[head * 2];
+	}
+
+	/**
+	 * Getter for the y coordinate of the head
+	 * @return y coordinate of the head
+	 */
+	public int getHeadY() {
+		return body[head * 2 + 1];
+	}
+
+	/**
+	 * Getter for the x coordinate of the tail
+	 * @return x coordinate of the tail
+	 */
+	public int getTailX() {
+		return getX(size - 1);
+	}
+
+	/**
+	 * Getter for the y coordinate of the tail
+	 * @return y coordinate of the tail
+	 */
+	public int getTailY() {
+		return getY(size - 1);
+	}
+
+	/**
+	 * Stay method for the snake, if there is no better option, it comes here and does nothing
+	 */
+	public void stay() {	
+	}
+
+	/**
+	 * Makes the snake move 1 box further by using the proper direction.
+	 * The old tail is dropped, so the caller should read getTailX() and getTailY() before moving.
+	 * @param dir The direction of the new move, the free and wise direction.
+	 */
+	public void move(Direction dir) {
+		int x = getHeadX() + dir.getDx();
+		int y = getHeadY() + dir.getDy();
+		// new head is written over the slot of the old tail
+		head = (head - 1) & mask;
+		body[head * 2] = x;
+		body[head * 2 + 1] = y;
+	}
+
+	/**
+	 * Eating method for the snake, it makes snake bigger by adding the food box as the new head
+	 * @param dir The direction of the food
+	 */
+	public void eat(Direction dir) {
+		int x = getHeadX() + dir.getDx();
+		int y = getHeadY() + dir.getDy();
+		if (size == mask + 1) {
+			grow();
+		}
+		head = (head - 1) & mask;
+		body[head * 2] = x;
+		body[head * 2 + 1] = y;
+		//size increments by 1
+		this.size++;
+	}
+
+	/**
+	 * Doubles the ring buffer, parts are copied so that the head is at slot 0 again
+	 */
+	private void grow() {
+		int[] old = body;
+		int oldMask = mask;
+		int oldHead = head;
+		allocate((mask + 1) * 2);
+		for (int i = 0; i < size; i++) {
+			int slot = (oldHead + i) & oldMask;
+			body[i * 2] = old[slot * 2];
+			body[i * 2 + 1] = old[slot * 2 + 1];
+		}
+	}
+
+	/**
+	 * It uses some information and makes proper decisions for the snake's head, also return the action.
+	 * Returned actions are the shared ones of the Action class, so deciding creates no objects.
+	 * @param information Information for the snake, in particular snake's head
+	 * @return Proper action to do
+	 */
+	public Action chooseAction(LocalInformation information) {
+		return chooseAction(size, information, random);
+	}
+
+	/**
+	 * Decision of a snake that is known only by its size, the way every snake decides. Games that keep their
+	 * snakes as numbers instead of Snake objects decide with it.
+	 * @param size size of the snake
+	 * @param information Information for the snake, in particular snake's head
+	 * @param random random numbers of the snake
+	 * @return Proper action to do
+	 */
+	public static Action chooseAction(int size, LocalInformation information, RandomSource random) {
+		return chooseAction(size, DIVIDING_SIZE, information, random);
+	}
+
+	/**
+	 * Decision of a snake that reproduces at another size than DIVIDING_SIZE, for trying out other sizes
+	 * @param size size of the snake
+	 * @param dividingSize size from which the snake reproduces, at least 2
+	 * @param information Information for the snake, in particular snake's head
+	 * @param random random numbers of the snake
+	 * @return Proper action to do
+	 */
+	public static Action chooseAction(int size, int dividingSize, LocalInformation information, RandomSource random) {
+		if(size >= dividingSize) {
+			return Action.REPRODUCE;
+		}
+		// makes the direction possible that includes a food
+		int food = information.getFoodMask();
+		if(food != 0) {
+			for(Direction dir : EAT_ORDER) {
+				if((food & (1 << dir.ordinal())) != 0) return Action.eat(dir);
+			}
+		}
+		// there is no food around snake's head, goes for the move, on a shortest path if the game knows one
+		Direction dir = information.getFlowDirection();
+		if(dir == null) {
+			dir = information.getNextDirection();
+		}
+		if(dir == null) {
+			dir = LocalInformation.getRandomDirection(information.getFreeMask(), random);
+		}
+		if(dir != null) {
+			return Action.move(dir);
+		}
+		return Action.STAY;
+	}
+
+	/**
+	 * Draws the snake's each node, head is blue and others are red. 
+	 * It can be arranged to variable colors by using size, but it may crash to the game
+	 */
+	public void draw(GridPanel panel) {
+		for(int i = 0; i < size; i++) {
+			drawPart(panel, getX(i), getY(i), i == 0);
+		}
+		}
+
+	/**
+	 * Draws a single part of a snake, head is blue and others are red.
+	 * @param panel panel to draw on
+	 * @param x x coordinate of the part
+	 * @param y y coordinate of the part
+	 * @param head whether the part is a head
+	 */
+	public static void drawPart(GridPanel panel, int x, int y, boolean head) {
+		panel.drawSquare(x, y, head ? HEAD_RGB : BODY_RGB);
+	}
+}
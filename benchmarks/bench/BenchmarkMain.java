@@ -0,0 +1,46 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import game.RenderBenchmarks;
+import worker.SimulationBenchmarks;
+
+/**
+ * Entry point of the benchmarks.
+ * Usage: BenchmarkMain [--filter text] [--warmup millis] [--time millis] [--save file.csv] [--baseline file.csv]
+ * Run with -Djava.awt.headless=true on machines without a display.
+ */
+public class BenchmarkMain {
+
+    /**
+     * Runs the benchmarks
+     * @param args application arguments, see the class comment
+     * @throws IOException if a CSV file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        String filter = null, save = null, baseline = null;
+        long warmup = 1000, time = 2000;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--filter": filter = args[i + 1]; break;
+                case "--warmup": warmup = Long.parseLong(args[i + 1]); break;
+                case "--time": time = Long.parseLong(args[i + 1]); break;
+                case "--save": save = args[i + 1]; break;
+                case "--baseline": baseline = args[i + 1]; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Harness harness = new Harness(warmup, time, filter);
+        SimulationBenchmarks.run(harness);
+        RenderBenchmarks.run(harness);
+
+        if (save != null) {
+            harness.save(Paths.get(save));
+        }
+        if (baseline != null) {
+            harness.compare(Paths.get(baseline));
+        }
+    }
+}
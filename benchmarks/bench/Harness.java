@@ -0,0 +1,289 @@
+package bench;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Small microbenchmark harness. Every benchmark is warmed up, then run repeatedly for a fixed time;
+ * time per operation and bytes allocated per operation are recorded.
+ * Results can be saved as CSV and compared to the CSV of an earlier run.
+ */
+public class Harness {
+
+    /**
+     * A benchmarked operation. The returned value is consumed so that the JIT cannot drop the work.
+     */
+    public interface Op {
+        /**
+         * Runs the operation once
+         * @return any value depending on the work done
+         */
+        long run();
+    }
+
+    /**
+     * Result of one benchmark
+     */
+    public static class Result {
+        /**
+         * Name of the benchmark
+         */
+        public final String name;
+        /**
+         * Average time of one operation in nanoseconds
+         */
+        public final double nanosPerOp;
+        /**
+         * Average allocation of one operation in bytes, negative if the JVM cannot measure it
+         */
+        public final double bytesPerOp;
+        /**
+         * Number of measured operations
+         */
+        public final long ops;
+
+        /**
+         * Constructs a result
+         * @param name name of the benchmark
+         * @param nanosPerOp average time of one operation
+         * @param bytesPerOp average allocation of one operation
+         * @param ops number of measured operations
+         */
+        public Result(String name, double nanosPerOp, double bytesPerOp, long ops) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+            this.ops = ops;
+        }
+    }
+
+    /**
+     * Written by every operation so that results are never dead code
+     */
+    private static volatile long sink;
+
+    /**
+     * Warmup and measurement durations in nanoseconds
+     */
+    private final long warmupNanos, measureNanos;
+
+    /**
+     * Only benchmarks whose name contains this string are run, null runs everything
+     */
+    private final String filter;
+
+    /**
+     * Results of the benchmarks run so far
+     */
+    private final List<Result> results = new ArrayList<>();
+
+    /**
+     * Thread bean for the allocation counters, null if allocation cannot be measured
+     */
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Constructs a harness
+     * @param warmupMillis warmup time of each benchmark
+     * @param measureMillis measurement time of each benchmark
+     * @param filter only benchmarks whose name contains it are run, null for all
+     */
+    public Harness(long warmupMillis, long measureMillis, String filter) {
+        this.warmupNanos = warmupMillis * 1_000_000L;
+        this.measureNanos = measureMillis * 1_000_000L;
+        this.filter = filter;
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threads = null;
+        }
+    }
+
+    /**
+     * Returns whether a benchmark is selected by the filter, useful to skip an expensive setup
+     * @param name name of the benchmark
+     * @return true if the benchmark will run
+     */
+    public boolean isSelected(String name) {
+        return filter == null || name.contains(filter);
+    }
+
+    /**
+     * Runs a benchmark if it is selected and prints its result
+     * @param name name of the benchmark
+     * @param op operation to measure
+     */
+    public void run(String name, Op op) {
+        if (!isSelected(name)) {
+            return;
+        }
+        loop(op, warmupNanos);
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long ops = loop(op, measureNanos);
+        long elapsed = System.nanoTime() - start;
+        long bytesAfter = allocatedBytes();
+        report(name, elapsed, bytesAfter - bytesBefore, ops);
+    }
+
+    /**
+     * Runs a benchmark whose operation changes its own input, like a tick of a world that keeps growing.
+     * The input is reset before every window of a fixed number of operations and only the windows are
+     * measured, so every run measures the same work and can be compared to a baseline.
+     * @param name name of the benchmark
+     * @param reset puts the input back into the same starting state, not measured
+     * @param window number of operations after each reset
+     * @param op operation to measure
+     */
+    public void run(String name, Runnable reset, int window, Op op) {
+        if (!isSelected(name)) {
+            return;
+        }
+        long[] totals = new long[3];
+        loop(reset, window, op, warmupNanos, totals);
+        Arrays.fill(totals, 0);
+        loop(reset, window, op, measureNanos, totals);
+        report(name, totals[0], totals[1], totals[2]);
+    }
+
+    /**
+     * Records and prints the result of a benchmark
+     * @param name name of the benchmark
+     * @param elapsed measured time in nanoseconds
+     * @param bytes bytes allocated in the measured time
+     * @param ops number of measured operations
+     */
+    private void report(String name, long elapsed, long bytes, long ops) {
+        double bytesPerOp = threads == null ? -1 : (double) bytes / ops;
+        Result result = new Result(name, (double) elapsed / ops, bytesPerOp, ops);
+        results.add(result);
+        System.out.printf("%-48s %14.1f ns/op %12.1f B/op %10d ops%n", name, result.nanosPerOp,
+                result.bytesPerOp, ops);
+    }
+
+    /**
+     * Calls the operation until the given time passes, the clock is read in growing batches
+     * @param op operation to run
+     * @param nanos time to run
+     * @return number of calls
+     */
+    private static long loop(Op op, long nanos) {
+        long end = System.nanoTime() + nanos;
+        long ops = 0;
+        long batch = 1;
+        long value = 0;
+        do {
+            for (long i = 0; i < batch; i++) {
+                value += op.run();
+            }
+            ops += batch;
+            if (batch < 1024) {
+                batch *= 2;
+            }
+        } while (System.nanoTime() < end);
+        sink = value;
+        return ops;
+    }
+
+    /**
+     * Runs windows of operations, each after a reset, until the given time passes
+     * @param reset puts the input back into the starting state
+     * @param window number of operations after each reset
+     * @param op operation to run
+     * @param nanos time to run, resets included
+     * @param totals measured time, allocated bytes and number of calls, added to
+     */
+    private void loop(Runnable reset, int window, Op op, long nanos, long[] totals) {
+        long end = System.nanoTime() + nanos;
+        long value = 0;
+        do {
+            reset.run();
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < window; i++) {
+                value += op.run();
+            }
+            totals[0] += System.nanoTime() - start;
+            totals[1] += allocatedBytes() - bytesBefore;
+            totals[2] += window;
+        } while (System.nanoTime() < end);
+        sink = value;
+    }
+
+    /**
+     * Sum of the bytes allocated by all live threads, so that work done by pool threads is counted too
+     * @return allocated bytes, zero if not supported
+     */
+    private long allocatedBytes() {
+        if (threads == null) {
+            return 0;
+        }
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Getter for the results so far
+     * @return results in run order
+     */
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * Writes the results as CSV
+     * @param file file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("name,nanosPerOp,bytesPerOp,ops");
+        for (Result r : results) {
+            lines.add(r.name + "," + r.nanosPerOp + "," + r.bytesPerOp + "," + r.ops);
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Prints the change of every result against a CSV written by an earlier run
+     * @param baseline CSV file of the earlier run
+     * @throws IOException if the file cannot be read
+     */
+    public void compare(Path baseline) throws IOException {
+        Map<String, double[]> old = new HashMap<>();
+        List<String> lines = Files.readAllLines(baseline, StandardCharsets.UTF_8);
+        for (String line : lines.subList(1, lines.size())) {
+            String[] parts = line.split(",");
+            old.put(parts[0], new double[] {Double.parseDouble(parts[1]), Double.parseDouble(parts[2])});
+        }
+        System.out.println();
+        System.out.println("Compared to " + baseline);
+        for (Result r : results) {
+            double[] before = old.get(r.name);
+            if (before == null) {
+                System.out.printf("%-48s %14s%n", r.name, "new");
+            } else {
+                System.out.printf("%-48s %+13.1f%% time %+12.1f B/op%n", r.name,
+                        (r.nanosPerOp / before[0] - 1) * 100, r.bytesPerOp - before[1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package game;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import assets.Snake;
+import bench.Harness;
+import ui.GridPanel;
+import worker.Checkpoint;
+import worker.SnakeSimulator;
+
+/**
+ * Benchmarks of the rendering hot paths: a whole redraw, a tick with its incremental redraw,
+ * the density view of a huge world and drawing of a single square
+ */
+public class RenderBenchmarks {
+
+    /**
+     * Grid sizes of the redraw benchmarks
+     */
+    private static final int[] GRID_SIZES = {25, 100, 400};
+
+    /**
+     * Number of ticks measured from the same starting state, and the seed of the worlds
+     */
+    private static final int TICK_WINDOW = 10, SEED = 42;
+
+    /**
+     * Runs all benchmarks of this class
+     * @param harness harness to run the benchmarks with
+     * @throws IOException if the starting state of a world cannot be saved
+     */
+    public static void run(Harness harness) throws IOException {
+        for (int size : GRID_SIZES) {
+            String name = "GridGame.redraw/" + size + "x" + size;
+            String incremental = "GridGame.timerTick+redraw/" + size + "x" + size;
+            if (!harness.isSelected(name) && !harness.isSelected(incremental)) {
+                continue;
+            }
+            SnakeSimulator game = new SnakeSimulator(size, size, Math.max(2, 800 / size), 10);
+            game.setSeed(SEED);
+            // snakes on every other row, so that about half of the grid is drawn
+            for (int y = 1; y < size; y += 2) {
+                for (int x = 4; x < size; x += 5) {
+                    game.addSnake(new Snake(x, y, 4));
+                }
+            }
+            game.spawnFood();
+            // redraw is package-private, it is not visible through the subclass type
+            GridGame grid = game;
+            harness.run(name, () -> {
+                grid.invalidate();
+                grid.redraw();
+                return 1;
+            });
+            // a tick followed by the incremental redraw of the cells it changed, always from the same start
+            Path file = Files.createTempFile("start", ".bin");
+            try {
+                Checkpoint.save(game, file);
+                harness.run(incremental, () -> restore(game, file), TICK_WINDOW, () -> {
+                    grid.timerTick();
+                    grid.redraw();
+                    return 1;
+                });
+            } finally {
+                Files.delete(file);
+            }
+        }
+
+        String density = "GridGame.redraw+density/1000000x1000000/10000";
+        if (harness.isSelected(density)) {
+            SnakeSimulator game = new SnakeSimulator(1_000_000, 1_000_000, 1, 10);
+            for (int i = 0; i < 10_000; i++) {
+                game.addSnake(new Snake(10 + (i % 100) * 9_999, 10 + (i / 100) * 9_999, 4));
+            }
+            game.spawnFood();
+            GridPanel view = game.getGamePanel();
+            // zoomed out until the whole world fits into the panel
+            view.setViewport(view.getViewport().zoomed(-30, 0, 0));
+            GridGame grid = game;
+            harness.run(density, () -> {
+                grid.redraw();
+                return 1;
+            });
+        }
+
+        GridPanel panel = new GridPanel(100, 100, 8);
+        Color color = Color.RED;
+        int[] cell = {0};
+        harness.run("GridPanel.drawSquare", () -> {
+            int i = cell[0]++ % 10_000;
+            panel.drawSquare(i % 100, i / 100, color);
+            return i;
+        });
+    }
+
+    /**
+     * Loads the starting state of a world and draws it whole, so that the measured redraws are incremental
+     * @param game world to load into
+     * @param file checkpoint of the starting state
+     */
+    private static void restore(SnakeSimulator game, Path file) {
+        try {
+            Checkpoint.restore(game, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        GridGame grid = game;
+        grid.redraw();
+    }
+}
@@ -0,0 +1,259 @@
+package worker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import assets.Snake;
+import bench.Harness;
+import game.HeadlessRunner;
+
+/**
+ * Benchmarks of the simulation hot paths: a whole tick at several grid sizes and populations,
+ * deciding of a whole population and of a single snake, and reproduction.
+ * Ticks are measured in short windows that all start from the same seeded world, see runTicks(...).
+ * @author Burak
+ *
+ */
+public class SimulationBenchmarks {
+
+	/**
+	 * Grid sizes and populations of the tick benchmarks
+	 */
+	private static final int[] GRID_SIZES = {100, 1000, 4000}, POPULATIONS = {100, 10_000, 100_000, 1_000_000};
+
+	/**
+	 * Size of the snakes placed at the beginning
+	 */
+	private static final int SNAKE_SIZE = 4;
+
+	/**
+	 * Number of ticks measured from the same starting state, and the seed of every world
+	 */
+	private static final int TICK_WINDOW = 10, SEED = 42;
+
+	/**
+	 * Runs all benchmarks of this class
+	 * @param harness harness to run the benchmarks with
+	 * @throws IOException if the replay file of the recording benchmark cannot be written
+	 */
+	public static void run(Harness harness) throws IOException {
+		for (int size : GRID_SIZES) {
+			for (int population : POPULATIONS) {
+				String name = "SnakeSimulator.timerTick/" + size + "x" + size + "/" + population;
+				if (!harness.isSelected(name) || !fits(size, population)) {
+					continue;
+				}
+				runTicks(harness, name, createWorld(size, population));
+			}
+		}
+		// the distance field searches the whole map, so only the smaller worlds
+		for (int population : POPULATIONS) {
+			String name = "SnakeSimulator.timerTick+flowField/1000x1000/" + population;
+			if (!harness.isSelected(name) || !fits(1000, population)) {
+				continue;
+			}
+			SnakeSimulator game = createWorld(1000, population);
+			game.setFlowFieldEnabled(true);
+			runTicks(harness, name, game);
+		}
+
+		// the same world kept in chunks, and a world far too big for a dense grid
+		String chunkedName = "SnakeSimulator.timerTick+chunked/4000x4000/10000";
+		if (harness.isSelected(chunkedName)) {
+			runTicks(harness, chunkedName, createWorld(4000, 10_000, true));
+		}
+		String hugeName = "SnakeSimulator.timerTick/1000000x1000000/10000";
+		if (harness.isSelected(hugeName)) {
+			runTicks(harness, hugeName, createWorld(1_000_000, 10_000, true));
+		}
+
+		// same tick as above with every action written into a replay file
+		String recordName = "SnakeSimulator.timerTick+record/1000x1000/10000";
+		if (harness.isSelected(recordName)) {
+			SnakeSimulator recorded = createWorld(1000, 10_000);
+			Path file = Files.createTempFile("replay", ".bin");
+			ReplayRecorder recorder = new ReplayRecorder(recorded, file, 1000);
+			try {
+				runTicks(harness, recordName, recorded);
+			} finally {
+				recorder.close();
+				Files.delete(file);
+			}
+		}
+
+		// whole state of a big world into a file and back
+		String saveName = "Checkpoint.save/4000x4000/100000", restoreName = "Checkpoint.restore/4000x4000/100000";
+		if (harness.isSelected(saveName) || harness.isSelected(restoreName)) {
+			SnakeSimulator big = createWorld(4000, 100_000);
+			new HeadlessRunner(big).run(10, 0);
+			SnakeSimulator loaded = new SnakeSimulator(4000, 4000);
+			Path file = Files.createTempFile("checkpoint", ".bin");
+			try {
+				harness.run(saveName, () -> save(big, file));
+				Checkpoint.save(big, file);
+				harness.run(restoreName, () -> restore(loaded, file));
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		}
+
+		// sensing and deciding of a whole population on a map that does not change
+		String decideName = "GreedyStrategy.decide/1000x1000/10000";
+		if (harness.isSelected(decideName)) {
+			SnakeSimulator world = createWorld(1000, 10_000);
+			SnakeSensors sensors = new SnakeSensors();
+			ActionBuffer actions = new ActionBuffer();
+			GreedyStrategy strategy = new GreedyStrategy();
+			harness.run(decideName, () -> {
+				sensors.update(world.getMap(), world.getFoodIndex(), null, world.getPopulation(), 10_000);
+				actions.reset(10_000);
+				strategy.decide(sensors, actions);
+				return actions.get(0);
+			});
+		}
+
+		// sensing alone, the neighbors of a million heads from the byte map
+		String senseName = "SnakeSensors.update/4000x4000/1000000";
+		if (harness.isSelected(senseName)) {
+			SnakeSimulator world = createWorld(4000, 1_000_000);
+			SnakeSensors sensors = new SnakeSensors();
+			harness.run(senseName, () -> {
+				sensors.update(world.getMap(), world.getFoodIndex(), null, world.getPopulation(), 1_000_000);
+				return sensors.getNeighbors(0);
+			});
+		}
+
+		// a full copy of a world against a fork of it that tries one action
+		String snapshotName = "SnakeSimulator.snapshot/1000x1000/10000";
+		String forkName = "WorldSnapshot.fork+apply/1000x1000/10000";
+		if (harness.isSelected(snapshotName) || harness.isSelected(forkName)) {
+			SnakeSimulator world = createWorld(1000, 10_000);
+			harness.run(snapshotName, () -> world.snapshot().getSnakeCount());
+			WorldSnapshot base = world.snapshot();
+			int[] next = {0};
+			harness.run(forkName, () -> {
+				WorldSnapshot fork = base.fork();
+				next[0] = (next[0] + 1) % 10_000;
+				return fork.apply(next[0], Action.REPRODUCE) ? 1 : 0;
+			});
+		}
+
+		SnakeSimulator game = createWorld(100, 100);
+		Snake snake = game.getSnake(0);
+		LocalInformation information = new LocalInformation(100, 100);
+		harness.run("Snake.chooseAction", () -> {
+			information.load(game.getMap(), game.getFoodIndex(), null, snake.getHeadX(), snake.getHeadY(),
+					snake.getRandom());
+			return snake.chooseAction(information).getType().ordinal();
+		});
+		harness.run("LocalInformation.getNextDirection", () -> {
+			information.load(game.getMap(), game.getFoodIndex(), null, snake.getHeadX(), snake.getHeadY(),
+					snake.getRandom());
+			game.Direction dir = information.getNextDirection();
+			return dir == null ? -1 : dir.ordinal();
+		});
+		// nearest food among many, the index only looks at the buckets around the head
+		SnakeSimulator crowded = createWorld(1000, 100);
+		crowded.setFoodSupply(10_000, 10_000);
+		new HeadlessRunner(crowded).run(1, 0);
+		Snake hungry = crowded.getSnake(0);
+		LocalInformation crowdedInformation = new LocalInformation(1000, 1000);
+		harness.run("LocalInformation.getNextDirection/10000food", () -> {
+			crowdedInformation.load(crowded.getMap(), crowded.getFoodIndex(), null, hungry.getHeadX(), hungry.getHeadY(),
+					hungry.getRandom());
+			game.Direction dir = crowdedInformation.getNextDirection();
+			return dir == null ? -1 : dir.ordinal();
+		});
+		harness.run("Snake.new", () -> new Snake(8, 1, 8).getSize());
+		harness.run("Snake.reproduce", () -> new Snake(8, 1, 8).reproduce().getSize());
+	}
+
+	/**
+	 * Runs a tick benchmark in windows of TICK_WINDOW ticks, each starting from the state the world has now.
+	 * A world with food keeps growing, so ticking it on and on would measure a different world every time.
+	 * @param harness harness to run the benchmark with
+	 * @param name name of the benchmark
+	 * @param game world to tick
+	 * @throws IOException if the starting state cannot be saved
+	 */
+	private static void runTicks(Harness harness, String name, SnakeSimulator game) throws IOException {
+		Path file = Files.createTempFile("start", ".bin");
+		try {
+			Checkpoint.save(game, file);
+			HeadlessRunner runner = new HeadlessRunner(game);
+			harness.run(name, () -> restore(game, file), TICK_WINDOW, () -> runner.run(1, 0));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Saves a checkpoint, operations of the harness cannot throw checked exceptions
+	 * @param game game to save
+	 * @param file checkpoint file
+	 * @return size of the file
+	 */
+	private static long save(SnakeSimulator game, Path file) {
+		try {
+			Checkpoint.save(game, file);
+			return Files.size(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Restores a checkpoint, operations of the harness cannot throw checked exceptions
+	 * @param game game to load into
+	 * @param file checkpoint file
+	 * @return number of loaded snakes
+	 */
+	private static long restore(SnakeSimulator game, Path file) {
+		try {
+			Checkpoint.restore(game, file);
+			return game.getSnakeCount();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Checks if the population fits into the grid with one empty row between snake rows
+	 * @param size grid size
+	 * @param population snake count
+	 * @return true if all snakes can be placed
+	 */
+	private static boolean fits(int size, int population) {
+		return (long) ((size - 1) / (SNAKE_SIZE + 1)) * ((size - 1) / 2) >= population;
+	}
+
+	/**
+	 * Creates a headless world with the given number of snakes and one food
+	 * @param size grid size
+	 * @param population snake count
+	 * @return the world
+	 */
+	private static SnakeSimulator createWorld(int size, int population) {
+		return createWorld(size, population, false);
+	}
+
+	/**
+	 * Creates a headless world with the given number of snakes and one food, the same every time
+	 * @param size grid size
+	 * @param population snake count
+	 * @param chunked whether the map is a ChunkedGrid
+	 * @return the world
+	 */
+	private static SnakeSimulator createWorld(int size, int population, boolean chunked) {
+		SnakeSimulator game = new SnakeSimulator(size, size, chunked);
+		game.setSeed(SEED);
+		int perRow = (size - 1) / (SNAKE_SIZE + 1);
+		for (int i = 0; i < population; i++) {
+			game.addSnake(new Snake(SNAKE_SIZE + (i % perRow) * (SNAKE_SIZE + 1), 1 + (i / perRow) * 2, SNAKE_SIZE));
+		}
+		game.spawnFood();
+		return game;
+	}
+}
@@ -0,0 +1,20 @@
+package game;
+
+import ui.GridPanel;
+
+
+/**
+ * Interface that draws single cells of a game with incremental rendering
+ *
+ */
+public interface CellRenderer {
+
+    /**
+     * Draws the current content of a single cell, the cell is already cleared
+     * @param panel panel to draw on
+     * @param x x position of the cell
+     * @param y y position of the cell
+     */
+    void drawCell(GridPanel panel, int x, int y);
+
+}
@@ -0,0 +1,19 @@
+package game;
+
+import ui.DensityMap;
+
+
+/**
+ * Interface that tells how full the parts of a world are, for views zoomed out past one cell per pixel
+ *
+ */
+public interface DensitySource {
+
+    /**
+     * Adds the occupied cells behind the pixels of a zoomed out view, for example with density.add(...) for
+     * blocks of cells the game keeps counts for
+     * @param density density map to fill, it is empty and knows the viewport
+     */
+    void collectDensity(DensityMap density);
+
+}
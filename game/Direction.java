@@ -5,4 +5,37 @@ package game;
  * Enum representing four possible relative directions on a grid world.
  * Diagonal directions are not allowed.
  */
-public enum Direction { UP, DOWN, LEFT, RIGHT }
+public enum Direction {
+    UP(0, -1), DOWN(0, 1), LEFT(-1, 0), RIGHT(1, 0);
+
+    /**
+     * Step of the direction along x and y
+     */
+    private final int dx, dy;
+
+    /**
+     * Constructs a direction
+     * @param dx step along x
+     * @param dy step along y
+     */
+    Direction(int dx, int dy) {
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    /**
+     * Getter for the step along x
+     * @return -1, 0 or 1
+     */
+    public int getDx() {
+        return dx;
+    }
+
+    /**
+     * Getter for the step along y, y grows downwards
+     * @return -1, 0 or 1
+     */
+    public int getDy() {
+        return dy;
+    }
+}
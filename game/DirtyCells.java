@@ -0,0 +1,95 @@
+package game;
+
+import java.util.Arrays;
+
+
+/**
+ * Set of grid cells changed since the last clear, kept in marking order.
+ * A bitmap over the grid removes duplicates, so marking a cell twice costs nothing extra.
+ */
+public class DirtyCells {
+
+    /**
+     * Width of the grid
+     */
+    private final int gridWidth;
+
+    /**
+     * One bit for each cell, set if the cell is in the list
+     */
+    private final long[] marked;
+
+    /**
+     * Indices (y*width+x) of the marked cells, first count entries are valid
+     */
+    private int[] cells = new int[64];
+
+    /**
+     * Number of marked cells
+     */
+    private int count;
+
+    /**
+     * Constructs an empty set for a grid
+     * @param gridWidth width of the grid
+     * @param gridHeight height of the grid
+     */
+    public DirtyCells(int gridWidth, int gridHeight) {
+        this.gridWidth = gridWidth;
+        this.marked = new long[(int) (((long) gridWidth * gridHeight + 63) >>> 6)];
+    }
+
+    /**
+     * Marks a cell as changed
+     * @param x x position of the cell
+     * @param y y position of the cell
+     */
+    public void mark(int x, int y) {
+        int cell = y * gridWidth + x;
+        long bit = 1L << cell;
+        if ((marked[cell >>> 6] & bit) != 0) {
+            return;
+        }
+        marked[cell >>> 6] |= bit;
+        if (count == cells.length) {
+            cells = Arrays.copyOf(cells, count * 2);
+        }
+        cells[count++] = cell;
+    }
+
+    /**
+     * Getter for the number of changed cells
+     * @return cell count
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Getter for the x position of a changed cell
+     * @param i index of the cell in marking order
+     * @return x position
+     */
+    public int getX(int i) {
+        return cells[i] % gridWidth;
+    }
+
+    /**
+     * Getter for the y position of a changed cell
+     * @param i index of the cell in marking order
+     * @return y position
+     */
+    public int getY(int i) {
+        return cells[i] / gridWidth;
+    }
+
+    /**
+     * Forgets all changed cells
+     */
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            marked[cells[i] >>> 6] = 0;
+        }
+        count = 0;
+    }
+}
@@ -0,0 +1,21 @@
+package game;
+
+import ui.GridPanel;
+
+
+/**
+ * Immutable picture of a game state, published by the simulation thread and drawn by the user interface.
+ * A frame must not change after it is created, so that it can be drawn while the game goes on.
+ */
+public interface Frame {
+
+    /**
+     * Draws this frame on the panel and repaints what changed
+     * @param panel panel to draw on
+     * @param previous frame currently on the panel, only the differences to it need to be drawn;
+     *                 null if the panel has to be drawn from scratch
+     * @return false if nothing was drawn, for example because the frame was taken for another viewport
+     */
+    boolean draw(GridPanel panel, Frame previous);
+
+}
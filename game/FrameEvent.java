@@ -0,0 +1,32 @@
+package game;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+
+/**
+ * Flight recorder event of drawing one frame into the game image, committed after the redraw with its time.
+ * Painting the image on the screen is a PaintEvent.
+ */
+@Name("snakegame.Frame")
+@Label("Frame Redraw")
+@Category("Snake Game")
+@Description("Drawing of one frame into the game image")
+class FrameEvent extends jdk.jfr.Event {
+
+    /**
+     * Whether the whole panel was drawn instead of the changed cells
+     */
+    @Label("Full Redraw")
+    boolean full;
+
+    /**
+     * Time spent in drawing
+     */
+    @Label("Redraw Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long redrawTime;
+}
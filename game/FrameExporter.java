@@ -0,0 +1,314 @@
+package game;
+
+import ui.GridPanel;
+
+import javax.imageio.ImageIO;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Records the frames drawn by a game as numbered PNG files or as one raw video stream, without slowing the drawing.
+ * The thread that draws only copies the pixels of the panel into a free buffer and queues it; encoders of a pool
+ * of its own turn the buffers into files. The queue and the buffers are bounded, so when the encoders cannot keep
+ * up the new frames are dropped and counted instead of piling up in memory or stalling the drawing.
+ * PNG files are named frame_000000.png, frame_000001.png and so on in the order the frames were queued, without
+ * gaps for the dropped ones, and are encoded by several threads at once. A raw stream is the RGB bytes of every
+ * frame row by row, one frame after the other, e.g. for ffmpeg -f rawvideo -pix_fmt rgb24 -s WxH; it is written by
+ * a single encoder so that the frames stay in order.
+ * Once a frame cannot be written, it and every frame not written yet are dropped and close() throws the error, so
+ * the output stops there. Every offered frame is counted either as written or as dropped.
+ */
+public class FrameExporter implements Closeable {
+
+    /**
+     * Kinds of output
+     */
+    public enum Format {
+        /**
+         * One PNG file for every frame in a directory
+         */
+        PNG,
+        /**
+         * One file of raw RGB frames
+         */
+        RAW
+    }
+
+    /**
+     * Color model of the frames, the alpha of the panel image is left out
+     */
+    private static final DirectColorModel RGB = new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF);
+
+    /**
+     * Kind of output
+     */
+    private final Format format;
+
+    /**
+     * Directory of the PNG files, or the raw stream file
+     */
+    private final Path target;
+
+    /**
+     * Channel of the raw stream, null for PNG files
+     */
+    private final FileChannel stream;
+
+    /**
+     * Encoders, their queue is the queue of the frames
+     */
+    private final ThreadPoolExecutor encoders;
+
+    /**
+     * Pixel buffers that are not in use, at most as many as there can be frames queued and being encoded
+     */
+    private final ArrayBlockingQueue<int[]> freeBuffers;
+
+    /**
+     * Number of pixel buffers made so far
+     */
+    private final AtomicInteger buffers = new AtomicInteger();
+
+    /**
+     * Most pixel buffers there may be
+     */
+    private final int maxBuffers;
+
+    /**
+     * Size of the frames, set by the first frame
+     */
+    private int width, height;
+
+    /**
+     * Bytes of a raw frame, made for the first frame and reused, only used by the single encoder of a raw stream
+     */
+    private ByteBuffer rawBytes;
+
+    /**
+     * Number of the next queued frame, only used by the thread that draws
+     */
+    private long nextFrame;
+
+    /**
+     * Frames written and frames dropped because the encoders were behind or had failed
+     */
+    private final AtomicLong framesWritten = new AtomicLong(), framesDropped = new AtomicLong();
+
+    /**
+     * Durations of encoding and writing a frame
+     */
+    private final LatencyHistogram encodeTimes = new LatencyHistogram();
+
+    /**
+     * First error of an encoder, thrown by close()
+     */
+    private volatile IOException failure;
+
+    /**
+     * Starts the encoders
+     * @param target directory of the PNG files, created if it does not exist, or the raw stream file, overwritten
+     *               if it exists
+     * @param format kind of output
+     * @param queueSize most frames waiting to be encoded
+     * @param encoderCount number of encoder threads for PNG files, a raw stream always has one
+     * @throws IOException if the target cannot be created
+     * @throws IllegalArgumentException if the queue size or the encoder count is not positive
+     */
+    public FrameExporter(Path target, Format format, int queueSize, int encoderCount) throws IOException {
+        if (queueSize <= 0 || encoderCount <= 0) {
+            throw new IllegalArgumentException("Invalid queue size " + queueSize + " or encoder count " + encoderCount);
+        }
+        this.format = format;
+        this.target = target;
+        if (format == Format.PNG) {
+            Files.createDirectories(target);
+            stream = null;
+        } else {
+            stream = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            encoderCount = 1;
+        }
+        maxBuffers = queueSize + encoderCount;
+        freeBuffers = new ArrayBlockingQueue<>(maxBuffers);
+        AtomicInteger threads = new AtomicInteger();
+        encoders = new ThreadPoolExecutor(encoderCount, encoderCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "Frame encoder " + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queues the image of a panel, called by the thread that draws right after drawing
+     * @param panel panel whose image is copied
+     * @return false if the frame was dropped because the encoders are behind or have failed
+     * @throws IllegalArgumentException if the image does not have the size of the first frame
+     */
+    public boolean offer(GridPanel panel) {
+        if (failure != null) {
+            framesDropped.incrementAndGet();
+            return false;
+        }
+        if (width == 0) {
+            width = panel.getImageWidth();
+            height = panel.getImageHeight();
+        } else if (width != panel.getImageWidth() || height != panel.getImageHeight()) {
+            throw new IllegalArgumentException("Frames of " + panel.getImageWidth() + "x" + panel.getImageHeight()
+                    + " cannot be added to frames of " + width + "x" + height);
+        }
+        int[] pixels = freeBuffers.poll();
+        if (pixels == null) {
+            if (buffers.get() >= maxBuffers) {
+                // every buffer is queued or being encoded, the encoders are behind
+                framesDropped.incrementAndGet();
+                return false;
+            }
+            buffers.incrementAndGet();
+            pixels = new int[width * height];
+        }
+        panel.copyPixels(pixels);
+        long frame = nextFrame;
+        int[] queued = pixels;
+        try {
+            encoders.execute(() -> encode(frame, queued));
+        } catch (RejectedExecutionException e) {
+            freeBuffers.add(pixels);
+            framesDropped.incrementAndGet();
+            return false;
+        }
+        nextFrame++;
+        return true;
+    }
+
+    /**
+     * Writes a frame and gives its buffer back, runs on an encoder. Frames still queued when another one failed
+     * are dropped.
+     * @param frame number of the frame
+     * @param pixels pixels of the frame
+     */
+    private void encode(long frame, int[] pixels) {
+        long start = System.nanoTime();
+        try {
+            if (failure != null) {
+                framesDropped.incrementAndGet();
+                return;
+            }
+            if (format == Format.PNG) {
+                writePng(frame, pixels);
+            } else {
+                writeRaw(pixels);
+            }
+            framesWritten.incrementAndGet();
+        } catch (IOException e) {
+            framesDropped.incrementAndGet();
+            if (failure == null) {
+                failure = e;
+            }
+        } finally {
+            freeBuffers.add(pixels);
+        }
+        // the histogram takes one writer at a time, encoding a frame takes far longer than waiting here
+        synchronized (encodeTimes) {
+            encodeTimes.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Writes a frame as a PNG file
+     * @param frame number of the frame
+     * @param pixels pixels of the frame
+     * @throws IOException if the file cannot be written
+     */
+    private void writePng(long frame, int[] pixels) throws IOException {
+        // the image is a view over the buffer, nothing is copied
+        WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(pixels, width * height), width, height,
+                width, RGB.getMasks(), null);
+        BufferedImage image = new BufferedImage(RGB, raster, false, null);
+        if (!ImageIO.write(image, "png", target.resolve(String.format("frame_%06d.png", frame)).toFile())) {
+            throw new IOException("No PNG writer");
+        }
+    }
+
+    /**
+     * Appends a frame to the raw stream
+     * @param pixels pixels of the frame
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeRaw(int[] pixels) throws IOException {
+        if (rawBytes == null) {
+            rawBytes = ByteBuffer.allocate(pixels.length * 3);
+        }
+        ByteBuffer bytes = rawBytes;
+        bytes.clear();
+        for (int rgb : pixels) {
+            bytes.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+        }
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            stream.write(bytes);
+        }
+    }
+
+    /**
+     * Getter for the number of frames written
+     * @return frame count
+     */
+    public long getFramesWritten() {
+        return framesWritten.get();
+    }
+
+    /**
+     * Getter for the number of frames dropped because the encoders could not keep up
+     * @return frame count
+     */
+    public long getFramesDropped() {
+        return framesDropped.get();
+    }
+
+    /**
+     * Getter for the durations of encoding and writing the frames
+     * @return histogram of the encode times
+     */
+    public LatencyHistogram getEncodeTimes() {
+        return encodeTimes;
+    }
+
+    /**
+     * Writes the frames still queued and stops the encoders, the game should not draw into it any more
+     * @throws IOException if a frame could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        encoders.shutdown();
+        try {
+            encoders.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (stream != null) {
+            stream.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -1,11 +1,19 @@
 package game;
 
+import ui.DensityMap;
 import ui.GridPanel;
+import ui.Viewport;
 
 import javax.swing.*;
 
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import jdk.jfr.FlightRecorder;
 
 
 /**
@@ -28,6 +36,88 @@ public abstract class GridGame {
      */
     private Set<Drawable> drawables;
 
+    /**
+     * Width and height of the grid world, kept here so that a headless game works without a panel
+     */
+    private final int gridWidth, gridHeight;
+
+    /**
+     * Visible cells changed since the last redraw, relative to the top left cell of dirtyViewport;
+     * null if the game does not render incrementally
+     */
+    private DirtyCells dirtyCells;
+
+    /**
+     * Draws the cells with incremental rendering, null without it
+     */
+    private CellRenderer cellRenderer;
+
+    /**
+     * Tells how full the cells of a zoomed out view are, null if the panel does not zoom out that far
+     */
+    private DensitySource densitySource;
+
+    /**
+     * Viewport the dirty cells are kept for, the cells outside of it are not kept
+     */
+    private Viewport dirtyViewport;
+
+    /**
+     * Whether the next redraw must draw the whole panel
+     */
+    private boolean fullRedraw = true;
+
+    /**
+     * Thread running timerTick() at a fixed timestep, null unless started with separate tick and frame rates
+     */
+    private Thread simulationThread;
+
+    /**
+     * Timer drawing the latest published frame at the frame rate
+     */
+    private Timer frameTimer;
+
+    /**
+     * Whether the simulation thread should keep running
+     */
+    private volatile boolean running;
+
+    /**
+     * Latest frame published by the simulation thread
+     */
+    private volatile Frame latestFrame;
+
+    /**
+     * Set by the renderer when it wants a new frame, so that frames are only captured at the frame rate
+     */
+    private final AtomicBoolean frameRequested = new AtomicBoolean(true);
+
+    /**
+     * Frame currently on the panel, only used on the event dispatch thread
+     */
+    private Frame drawnFrame;
+
+    /**
+     * Density of the cells drawn by the last zoomed out redraw, reused while the viewport stays the same
+     */
+    private DensityMap density;
+
+    /**
+     * Simulation may fall behind this many ticks before the missed time is dropped instead of caught up
+     */
+    private static final int MAX_LAG_TICKS = 5;
+
+    /**
+     * Durations of the ticks, of drawing frames into the image and of painting the panel on the screen
+     */
+    private final LatencyHistogram tickTimes = new LatencyHistogram(), redrawTimes = new LatencyHistogram(),
+            paintTimes = new LatencyHistogram();
+
+    /**
+     * Exporter of the frames drawn, null if they are not recorded
+     */
+    private volatile FrameExporter frameExporter;
+
     /**
      * Constructs a generic grid game
      * @param gridWidth width of the grid world
@@ -36,27 +126,206 @@ public abstract class GridGame {
      * @param frameRate frame rate denoting the number of ticks per second
      */
     public GridGame(int gridWidth, int gridHeight, int gridSquareSize, int frameRate) {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
         gamePanel = new GridPanel(gridWidth, gridHeight, gridSquareSize);
         gameTimer = new Timer(1000/frameRate, event -> {
-            timerTick();
+            tick();
             redraw();
         });
         drawables = new HashSet<>();
+        gamePanel.setPaintListener(this::painted);
+        gamePanel.setViewportListener(this::viewportChanged);
+    }
+
+    /**
+     * Constructs a headless grid game without panel and timer.
+     * Such a game is driven by a {@link HeadlessRunner} instead of the Swing timer, nothing is drawn.
+     * @param gridWidth width of the grid world
+     * @param gridHeight height of the grid world
+     */
+    public GridGame(int gridWidth, int gridHeight) {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        drawables = new HashSet<>();
+    }
+
+    /**
+     * Returns whether this game runs without a panel
+     * @return true if the game is headless
+     */
+    public boolean isHeadless() {
+        return gamePanel == null;
     }
 
     /**
      * Called at each tick to redraw the drawable objects added to this game.
-     * Additionally draws gridlines.
+     * Additionally draws gridlines. Package-private so that the render benchmarks can call it.
+     * With incremental rendering, only the cells marked since the last redraw are drawn again and only
+     * their rectangles are repainted, and a whole redraw draws the visible cells instead of the drawables,
+     * so its cost follows the size of the view and not the size of the world.
+     * A zoomed out view is drawn whole every time from the density of the cells.
      */
-    private void redraw() {
-        gamePanel.clearCanvas();
-        gamePanel.drawGrid();
+    void redraw() {
+        long start = System.nanoTime();
+        Viewport viewport = gamePanel.getViewport();
+        boolean full = dirtyCells == null || fullRedraw || viewport.isDensity();
+        if (viewport.isDensity()) {
+            if (density == null || !density.getViewport().equals(viewport)) {
+                density = new DensityMap(viewport);
+            } else {
+                density.clear();
+            }
+            densitySource.collectDensity(density);
+            gamePanel.drawDensity(density);
+            fullRedraw = false;
+        } else if (full) {
+            gamePanel.drawBackground();
+
+            if (dirtyCells == null) {
+                for (Drawable drawable : drawables) {
+                    drawable.draw(gamePanel);
+                }
+            } else {
+                int left = viewport.getFirstX(), top = viewport.getFirstY();
+                for (int y = top; y < top + viewport.getVisibleHeight(); y++) {
+                    for (int x = left; x < left + viewport.getVisibleWidth(); x++) {
+                        cellRenderer.drawCell(gamePanel, x, y);
+                    }
+                }
+            }
 
-        for (Drawable drawable : drawables) {
-            drawable.draw(gamePanel);
+            gamePanel.repaint();
+            fullRedraw = false;
+        } else {
+            for (int i = 0; i < dirtyCells.size(); i++) {
+                int x = dirtyViewport.getFirstX() + dirtyCells.getX(i);
+                int y = dirtyViewport.getFirstY() + dirtyCells.getY(i);
+                gamePanel.clearCell(x, y);
+                cellRenderer.drawCell(gamePanel, x, y);
+                gamePanel.repaintCell(x, y);
+            }
         }
+        if (dirtyCells != null) {
+            dirtyCells.clear();
+        }
+        drawn(System.nanoTime() - start, full);
+    }
 
-        gamePanel.repaint();
+    /**
+     * Called on the event dispatch thread when the panel shows another part of the world, everything is drawn
+     * again at once or, with a simulation thread, as soon as it gives a frame for the new view
+     */
+    private void viewportChanged() {
+        if (dirtyCells != null) {
+            trackDirtyCells(gamePanel.getViewport());
+        }
+        fullRedraw = true;
+        drawnFrame = null;
+        if (simulationThread == null) {
+            redraw();
+        }
+    }
+
+    /**
+     * Runs one tick and records its duration, every game loop and the HeadlessRunner tick through it
+     */
+    void tick() {
+        long start = System.nanoTime();
+        timerTick();
+        tickTimes.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Called by the panel after every paint
+     * @param nanos time of the paint
+     */
+    private void painted(long nanos) {
+        paintTimes.record(nanos);
+        if (FlightRecorder.isInitialized()) {
+            PaintEvent event = new PaintEvent();
+            if (event.shouldCommit()) {
+                event.paintTime = nanos;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Called after every frame drawn into the image. Events are created only if the flight recorder has ever
+     * been started, an unused event object still costs more than drawing a few cells.
+     * @param nanos time of the drawing
+     * @param full whether the whole panel was drawn
+     */
+    private void drawn(long nanos, boolean full) {
+        redrawTimes.record(nanos);
+        FrameExporter exporter = frameExporter;
+        if (exporter != null) {
+            exporter.offer(gamePanel);
+        }
+        if (FlightRecorder.isInitialized()) {
+            FrameEvent event = new FrameEvent();
+            if (event.shouldCommit()) {
+                event.full = full;
+                event.redrawTime = nanos;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Turns on incremental rendering. The game must then call markDirty(...) for every cell it changes,
+     * the renderer draws the cells instead of the drawables.
+     * Headless games ignore it.
+     * @param renderer draws the current content of a cell
+     */
+    protected void enableIncrementalRendering(CellRenderer renderer) {
+        if (!isHeadless()) {
+            cellRenderer = Objects.requireNonNull(renderer);
+            trackDirtyCells(gamePanel.getViewport());
+            fullRedraw = true;
+        }
+    }
+
+    /**
+     * Starts keeping the changed cells of a viewport, the set costs a bit for each visible cell.
+     * A zoomed out view is drawn whole every time, so none of its cells are kept.
+     * @param viewport viewport to keep the cells of
+     */
+    private void trackDirtyCells(Viewport viewport) {
+        dirtyViewport = viewport;
+        dirtyCells = viewport.isDensity() ? new DirtyCells(1, 1)
+                : new DirtyCells(viewport.getVisibleWidth(), viewport.getVisibleHeight());
+    }
+
+    /**
+     * Marks a cell as changed, so that it is drawn again at the next redraw
+     * @param x x position of the cell
+     * @param y y position of the cell
+     */
+    protected void markDirty(int x, int y) {
+        if (dirtyCells != null && !dirtyViewport.isDensity() && dirtyViewport.isVisible(x, y)) {
+            dirtyCells.mark(x - dirtyViewport.getFirstX(), y - dirtyViewport.getFirstY());
+        }
+    }
+
+    /**
+     * Makes the next redraw draw the whole panel again
+     */
+    protected void invalidate() {
+        fullRedraw = true;
+    }
+
+    /**
+     * Lets the panel zoom out past one cell per pixel, a pixel then shows how full the cells behind it are.
+     * Without it the panel stops zooming out at one cell per pixel. Headless games ignore it.
+     * @param source adds the occupied cells behind the pixels of a zoomed out view
+     */
+    protected void enableDensityView(DensitySource source) {
+        if (!isHeadless()) {
+            densitySource = Objects.requireNonNull(source);
+            gamePanel.setDensityEnabled(true);
+        }
     }
 
     /**
@@ -65,6 +334,9 @@ public abstract class GridGame {
      * @param drawable Drawable to add the game
      */
     protected void addDrawable(Drawable drawable) {
+        if (isHeadless()) {
+            return;
+        }
         drawables.add(drawable);
     }
 
@@ -78,7 +350,7 @@ public abstract class GridGame {
 
     /**
      * Getter for the underlying grid panel
-     * @return grid panel to draw on
+     * @return grid panel to draw on, null if the game is headless
      */
     public GridPanel getGamePanel() {
         return gamePanel;
@@ -86,18 +358,136 @@ public abstract class GridGame {
 
     /**
      * Starts the game loop.
-     * The game loop periodically calls method timerTick(), at the set frame rate.
+     * The game loop periodically calls method timerTick(), at the set frame rate, and redraws after every tick.
      */
     public void start() {
+        if (isHeadless()) {
+            throw new IllegalStateException("A headless game has no timer, use a HeadlessRunner instead");
+        }
         gameTimer.setInitialDelay(0);
         gameTimer.start();
     }
 
+    /**
+     * Starts the game loop with separate simulation and display rates.
+     * timerTick() runs on its own thread at a fixed timestep, so a slow tick does not stall painting and
+     * a slow paint does not slow the simulation. The panel shows the latest frame captured by the frame source
+     * at the frame rate. Game state must not be changed from other threads once started.
+     * If a tick or a capture throws, the simulation stops and the error is thrown again on the event dispatch
+     * thread, where the game loop is stopped as well.
+     * @param tickRate number of ticks per second
+     * @param frameRate number of frames drawn per second
+     * @param frames captures the current state as an immutable frame, called on the simulation thread between
+     *               ticks
+     */
+    public void start(int tickRate, int frameRate, Supplier<Frame> frames) {
+        Objects.requireNonNull(frames);
+        if (isHeadless()) {
+            throw new IllegalStateException("A headless game has no panel, use a HeadlessRunner instead");
+        }
+        // cells are marked on the simulation thread, frames are compared instead
+        dirtyCells = null;
+        running = true;
+        long stepNanos = 1_000_000_000L / tickRate;
+        simulationThread = new Thread(() -> simulate(stepNanos, frames), "simulation");
+        simulationThread.setDaemon(true);
+        simulationThread.start();
+        frameTimer = new Timer(1000 / frameRate, event -> drawLatestFrame());
+        frameTimer.setInitialDelay(0);
+        frameTimer.start();
+    }
+
+    /**
+     * Loop of the simulation thread, ticks at a fixed timestep and publishes frames on request
+     * @param stepNanos time of one tick in nanoseconds
+     * @param frames captures the frames
+     */
+    private void simulate(long stepNanos, Supplier<Frame> frames) {
+        long next = System.nanoTime();
+        try {
+            while (running) {
+                tick();
+                if (frameRequested.compareAndSet(true, false)) {
+                    latestFrame = frames.get();
+                }
+                next += stepNanos;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                } else if (-wait > MAX_LAG_TICKS * stepNanos) {
+                    next = System.nanoTime();
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            // a dead daemon thread would only leave a frozen window, the event dispatch thread reports it
+            running = false;
+            SwingUtilities.invokeLater(() -> {
+                stop();
+                throw new IllegalStateException("Simulation stopped", e);
+            });
+        }
+    }
+
+    /**
+     * Draws the latest published frame if it is new, runs on the event dispatch thread. A frame taken for a
+     * viewport the panel has left draws nothing, then it is not counted as drawn or given to the frame exporter.
+     */
+    private void drawLatestFrame() {
+        Frame frame = latestFrame;
+        if (frame != null && frame != drawnFrame) {
+            long start = System.nanoTime();
+            if (frame.draw(gamePanel, drawnFrame)) {
+                drawn(System.nanoTime() - start, drawnFrame == null);
+                drawnFrame = frame;
+            }
+        }
+        frameRequested.set(true);
+    }
+
     /**
      * Stops the game loop
      */
     public void stop() {
-        gameTimer.stop();
+        if (gameTimer != null) {
+            gameTimer.stop();
+        }
+        if (frameTimer != null) {
+            frameTimer.stop();
+        }
+        running = false;
+    }
+
+    /**
+     * Records every frame drawn from now on, frames are copied on the event dispatch thread and encoded on the
+     * exporter's own threads. Headless games draw nothing, so nothing is recorded.
+     * @param exporter exporter to give the frames to, null to stop recording; the caller closes it
+     */
+    public void setFrameExporter(FrameExporter exporter) {
+        frameExporter = exporter;
+    }
+
+    /**
+     * Getter for the durations of the ticks
+     * @return histogram of the tick times
+     */
+    public LatencyHistogram getTickTimes() {
+        return tickTimes;
+    }
+
+    /**
+     * Getter for the durations of drawing frames into the game image
+     * @return histogram of the redraw times, empty if the game is headless
+     */
+    public LatencyHistogram getRedrawTimes() {
+        return redrawTimes;
+    }
+
+    /**
+     * Getter for the durations of painting the panel on the screen
+     * @return histogram of the paint times, empty if the game is headless
+     */
+    public LatencyHistogram getPaintTimes() {
+        return paintTimes;
     }
 
     /**
@@ -105,7 +495,7 @@ public abstract class GridGame {
      * @return number of grid squares along the width
      */
     public int getGridWidth() {
-        return gamePanel.getGridWidth();
+        return gridWidth;
     }
 
     /**
@@ -113,7 +503,7 @@ public abstract class GridGame {
      * @return number of grid squares along the height
      */
     public int getGridHeight() {
-        return gamePanel.getGridHeight();
+        return gridHeight;
     }
 
     /**
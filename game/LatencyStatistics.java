@@ -0,0 +1,94 @@
+package game;
+
+import java.beans.ConstructorProperties;
+
+
+/**
+ * Summary of a latency histogram at one moment, in microseconds.
+ * It has only getters, so it is shown as a composite value by JMX clients.
+ */
+public class LatencyStatistics {
+
+    /**
+     * Number of recorded values
+     */
+    private final long count;
+
+    /**
+     * Average, median, 90th and 99th percentile and the biggest value, in microseconds
+     */
+    private final double mean, p50, p90, p99, max;
+
+    /**
+     * Constructs a summary
+     * @param count number of recorded values
+     * @param mean average value
+     * @param p50 median value
+     * @param p90 90th percentile
+     * @param p99 99th percentile
+     * @param max biggest value
+     */
+    @ConstructorProperties({"count", "mean", "p50", "p90", "p99", "max"})
+    public LatencyStatistics(long count, double mean, double p50, double p90, double p99, double max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    /**
+     * Getter for the number of recorded values
+     * @return value count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Getter for the average
+     * @return average in microseconds
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Getter for the median
+     * @return median in microseconds
+     */
+    public double getP50() {
+        return p50;
+    }
+
+    /**
+     * Getter for the 90th percentile
+     * @return 90th percentile in microseconds
+     */
+    public double getP90() {
+        return p90;
+    }
+
+    /**
+     * Getter for the 99th percentile
+     * @return 99th percentile in microseconds
+     */
+    public double getP99() {
+        return p99;
+    }
+
+    /**
+     * Getter for the biggest value
+     * @return biggest value in microseconds
+     */
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus",
+                count, mean, p50, p90, p99, max);
+    }
+}
@@ -0,0 +1,25 @@
+package game;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+
+/**
+ * Flight recorder event of painting the game image on the screen, committed after the paint with its time.
+ */
+@Name("snakegame.Paint")
+@Label("Panel Paint")
+@Category("Snake Game")
+@Description("Painting of the game image on the screen")
+class PaintEvent extends jdk.jfr.Event {
+
+    /**
+     * Time spent in painting
+     */
+    @Label("Paint Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long paintTime;
+}
@@ -0,0 +1,92 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import game.HeadlessRunner;
+import worker.ReplayRecorder;
+import worker.SimulationMetrics;
+import worker.SnakeSimulator;
+import worker.SpectatorServer;
+
+/**
+ * Entry point for the headless simulation. There is no window and no timer, the simulator
+ * is stepped as fast as possible and the throughput is printed at the end.
+ * Usage: HeadlessMain [gridSize] [snakeCount] [ticks] [seconds] [flowField] [foodCount] [replayFile] [seed]
+ * [spectatorPort]
+ * If a replay file is given, the run is recorded into it and can be played again with ReplayPlayer; a dash
+ * records nothing. Runs with the same seed and the same other arguments are the same.
+ * If a spectator port is given, the run is streamed to SpectatorClients connecting to it on this machine.
+ * A tick count or seconds value of zero means no limit for that one, but at least one of them must be set.
+ * Worlds bigger than 4096x4096 are kept in chunks that exist only around the snakes and the food, so the grid
+ * size may be a million or more; the flow field does not fit into such worlds.
+ * @author Burak
+ */
+public class HeadlessMain {
+
+	/**
+	 * Default values for the arguments
+	 */
+	private static final int DEFAULT_GRID_SIZE = 1000, DEFAULT_SNAKE_COUNT = 1000, DEFAULT_TICKS = 0, DEFAULT_SECONDS = 10,
+			DEFAULT_FOOD_COUNT = 1;
+
+	/**
+	 * Number of ticks between two keyframes of a recorded run
+	 */
+	private static final int REPLAY_KEYFRAME_INTERVAL = 1000;
+
+	/**
+	 * Most ticks a new spectator waits for its first frame
+	 */
+	private static final int SPECTATOR_KEYFRAME_INTERVAL = 10;
+
+	/**
+	 * Runs the headless simulation
+	 * @param args application arguments, see the class comment
+	 * @throws IOException if the replay file cannot be written or the spectator port cannot be opened
+	 */
+	public static void main(String[] args) throws IOException {
+		int gridSize = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GRID_SIZE;
+		int snakeCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SNAKE_COUNT;
+		long ticks = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_TICKS;
+		long seconds = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SECONDS;
+		boolean flowField = args.length > 4 && Boolean.parseBoolean(args[4]);
+		int foodCount = args.length > 5 ? Integer.parseInt(args[5]) : DEFAULT_FOOD_COUNT;
+		String replayFile = args.length > 6 && !args[6].equals("-") ? args[6] : null;
+
+		SnakeSimulator game = new SnakeSimulator(gridSize, gridSize);
+		if (args.length > 7) {
+			game.setSeed(Long.parseLong(args[7]));
+		}
+		game.setFlowFieldEnabled(flowField);
+		game.setFoodSupply(foodCount, foodCount);
+		Main.populate(game, snakeCount);
+
+		ReplayRecorder recorder = replayFile == null ? null
+				: new ReplayRecorder(game, Paths.get(replayFile), REPLAY_KEYFRAME_INTERVAL);
+		SpectatorServer spectators = args.length > 8
+				? new SpectatorServer(game, Integer.parseInt(args[8]), SPECTATOR_KEYFRAME_INTERVAL) : null;
+		HeadlessRunner runner = new HeadlessRunner(game);
+		runner.run(ticks, seconds * 1000);
+		if (spectators != null) {
+			System.out.printf("%d frames streamed to spectators, %d dropped%n", spectators.getFramesQueued(),
+					spectators.getFramesDropped());
+			spectators.close();
+		}
+		if (recorder != null) {
+			recorder.close();
+			System.out.printf("replay of %d bytes written to %s%n", recorder.getBytesWritten(), replayFile);
+		}
+		System.out.printf("%d ticks in %.3f s, %.1f ticks/s, %d snakes%n", runner.getTicks(),
+				runner.getElapsedNanos() / 1e9, runner.getTicksPerSecond(), game.getSnakeCount());
+		SimulationMetrics metrics = game.getMetrics();
+		System.out.printf("moves %d, eats %d, reproductions %d, stays %d%n", metrics.getMoves(), metrics.getEats(),
+				metrics.getReproductions(), metrics.getStays());
+		System.out.println("tick   " + metrics.getTick());
+		System.out.println("sense  " + metrics.getSense());
+		System.out.println("decide " + metrics.getDecide());
+		System.out.println("apply  " + metrics.getApply());
+		System.out.println("food   " + metrics.getFood());
+	}
+
+}
@@ -1,9 +1,11 @@
 package main;
 
 import java.awt.EventQueue;
+import java.io.IOException;
+import java.nio.file.Paths;
 
-import assets.Food;
 import assets.Snake;
+import game.FrameExporter;
 import ui.ApplicationWindow;
 import worker.SnakeSimulator;
 
@@ -24,43 +26,100 @@ public class Main {
 	 * If the grid size becomes too big, then ,in game, food may not be seen due to the drawing code of it, if so you
 	 * can try to lower grid size, to see it. In short, drawing code of the food also cuts some parts of the boxes that 
 	 * it draw.
+	 * A grid bigger than the window can be moved by dragging it with the mouse and zoomed with the mouse wheel;
+	 * zoomed far out the window shows how crowded every part of the world is.
 	 */
 	private static final int GRID_SIZE = 25;
 	
 	/**
-	 * Value to set the game speed
+	 * Value to set the game speed, number of ticks in a second
 	 */
-	private static final int GAME_SPEED = 10;
+	private static final int TICK_RATE = 10;
+
+	/**
+	 * Number of frames drawn in a second, independent of the game speed
+	 */
+	private static final int FRAME_RATE = 30;
+
+	/**
+	 * Most frames waiting to be written and number of threads writing them when the game is recorded
+	 */
+	private static final int EXPORT_QUEUE_SIZE = 2 * FRAME_RATE, EXPORT_ENCODERS = 2;
 	
+	/**
+	 * Adds the first snakes and the food to the game. Snakes are placed horizontally on every other row,
+	 * side by side, so that none of them overlaps with another or is stuck to the world.
+	 * @param game game to populate
+	 * @param snakeCount number of snakes to add
+	 */
+	static void populate(SnakeSimulator game, int snakeCount) {
+		populate(game, snakeCount, FIRST_SNAKE_SIZE);
+	}
+
+	/**
+	 * Adds the first snakes and the food to the game, the same way as above with snakes of another size
+	 * @param game game to populate
+	 * @param snakeCount number of snakes to add
+	 * @param snakeSize size of every snake, at least 1
+	 */
+	static void populate(SnakeSimulator game, int snakeCount, int snakeSize) {
+		int perRow = (game.getGridWidth() - 1) / (snakeSize + 1);
+		int rows = (game.getGridHeight() - 1) / 2;
+		if (perRow < 1 || snakeCount > (long) perRow * rows) {
+			throw new IllegalArgumentException(snakeCount + " snakes do not fit into the world");
+		}
+		for (int i = 0; i < snakeCount; i++) {
+			int x = snakeSize + (i % perRow) * (snakeSize + 1);
+			int y = 1 + (i / perRow) * 2;
+			game.addSnake(new Snake(x, y, snakeSize));
+		}
+		// food is spawned after the snakes so that it will not overlap with them
+		game.spawnFood();
+	}
+
 	/**
 	 * This is the main part of the snake game. Game deviation begins in here.
 	 *
-	 * @param args application arguments
+	 * If a directory is given as the first argument, every frame is written into it as a PNG file while the game
+	 * runs; frames are dropped if the disk cannot keep up, the counts are printed when the window is closed.
+	 *
+	 * @param args application arguments, optionally the directory of the frames
+	 * @throws IOException if the directory of the frames cannot be created
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+		FrameExporter exporter = args.length > 0
+				? new FrameExporter(Paths.get(args[0]), FrameExporter.Format.PNG, EXPORT_QUEUE_SIZE, EXPORT_ENCODERS)
+				: null;
+		if (exporter != null) {
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					exporter.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				System.out.printf("%d frames written to %s, %d dropped%n", exporter.getFramesWritten(), args[0],
+						exporter.getFramesDropped());
+			}));
+		}
 		EventQueue.invokeLater(() -> {
 			try {
 				// Create game
 				// You can change the world width and height, size of each grid square in pixels or the game speed
-				SnakeSimulator game = new SnakeSimulator(GRID_SIZE, GRID_SIZE, 100 * 8/GRID_SIZE, GAME_SPEED);		
-				// Create and add snake
-				game.addSnake(new Snake(FIRST_SNAKE_SIZE,1,FIRST_SNAKE_SIZE));
-				// Create and add food
-				// get special x an y so that it will not overlap with the snake
-				int x = game.getX();
-				int y = game.getY();
-				while(x == 1 || x == 2 || x == 3 || x == 4 && y == 1) {
-					x = game.getX();
-					y = game.getY();
-				}
-				game.addFood(new Food(x, y));
+				SnakeSimulator game = new SnakeSimulator(GRID_SIZE, GRID_SIZE, Math.max(8, 100 * 8/GRID_SIZE), FRAME_RATE);		
+				// Snakes go to the food on shortest paths
+				game.setFlowFieldEnabled(true);
+				// Timings and counters can be watched with JConsole
+				game.getMetrics().register("main");
+				// Create and add snake and food
+				populate(game, 1);
+				game.setFrameExporter(exporter);
 
 				// Create application window that contains the game panel
 				ApplicationWindow window = new ApplicationWindow(game.getGamePanel());
 				window.getFrame().setVisible(true);
 
-				// Start game
-				game.start();
+				// Start game, simulation runs on its own thread and the window shows its latest frame
+				game.start(TICK_RATE, FRAME_RATE);
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
@@ -0,0 +1,93 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import worker.GameSettings;
+import worker.Tournament;
+
+/**
+ * Entry point for parameter sweeps. Every combination of the given values is played in many headless games at
+ * the same time on all cores, and one line of statistics is printed for each combination.
+ * Usage: TournamentMain [games] [ticks] [gridSizes] [snakeCounts] [snakeSizes] [dividingSizes] [foodCounts]
+ * [flowField] [threads] [seed]
+ * The sizes and counts are lists separated by commas, for example "4,6,8" for the dividing sizes.
+ * Combinations whose snakes do not fit into their grid are left out.
+ * @author Burak
+ */
+public class TournamentMain {
+
+	/**
+	 * Default values for the arguments
+	 */
+	private static final int DEFAULT_GAMES = 100, DEFAULT_TICKS = 500;
+
+	/**
+	 * Default lists of the sweep, only the dividing size is swept
+	 */
+	private static final String DEFAULT_GRID_SIZES = "25", DEFAULT_SNAKE_COUNTS = "1", DEFAULT_SNAKE_SIZES = "4",
+			DEFAULT_DIVIDING_SIZES = "4,6,8,10,12", DEFAULT_FOOD_COUNTS = "1";
+
+	/**
+	 * Runs the sweep
+	 * @param args application arguments, see the class comment
+	 */
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+		long ticks = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_TICKS;
+		int[] gridSizes = parseList(args.length > 2 ? args[2] : DEFAULT_GRID_SIZES);
+		int[] snakeCounts = parseList(args.length > 3 ? args[3] : DEFAULT_SNAKE_COUNTS);
+		int[] snakeSizes = parseList(args.length > 4 ? args[4] : DEFAULT_SNAKE_SIZES);
+		int[] dividingSizes = parseList(args.length > 5 ? args[5] : DEFAULT_DIVIDING_SIZES);
+		int[] foodCounts = parseList(args.length > 6 ? args[6] : DEFAULT_FOOD_COUNTS);
+		boolean flowField = args.length > 7 && Boolean.parseBoolean(args[7]);
+		int threads = args.length > 8 ? Integer.parseInt(args[8]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 9 ? Long.parseLong(args[9]) : System.nanoTime();
+
+		List<GameSettings> sweep = new ArrayList<>();
+		for (int gridSize : gridSizes) {
+			for (int snakeCount : snakeCounts) {
+				for (int snakeSize : snakeSizes) {
+					// same placement as Main.populate, snakes side by side on every other row
+					if ((long) ((gridSize - 1) / (snakeSize + 1)) * ((gridSize - 1) / 2) < snakeCount) {
+						continue;
+					}
+					for (int dividingSize : dividingSizes) {
+						for (int foodCount : foodCounts) {
+							sweep.add(new GameSettings(gridSize, snakeCount, snakeSize, dividingSize, foodCount, ticks,
+									flowField));
+						}
+					}
+				}
+			}
+		}
+		if (sweep.isEmpty()) {
+			throw new IllegalArgumentException("No combination fits into its grid");
+		}
+
+		Tournament tournament = new Tournament(sweep, games, seed,
+				(game, settings) -> Main.populate(game, settings.getSnakeCount(), settings.getSnakeSize()));
+		long start = System.nanoTime();
+		List<Tournament.Result> results = tournament.run(threads);
+		long elapsed = System.nanoTime() - start;
+		for (Tournament.Result result : results) {
+			System.out.println(result);
+		}
+		System.out.printf("%d games on %d threads in %.3f s, seed %d%n", (long) sweep.size() * games, threads,
+				elapsed / 1e9, seed);
+	}
+
+	/**
+	 * Reads a list of numbers separated by commas
+	 * @param list the list
+	 * @return the numbers
+	 */
+	private static int[] parseList(String list) {
+		String[] parts = list.split(",");
+		int[] values = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Integer.parseInt(parts[i].trim());
+		}
+		return values;
+	}
+}
@@ -0,0 +1,95 @@
+package ui;
+
+import java.util.Arrays;
+
+
+/**
+ * How full the cells behind every pixel of a zoomed out view are. The game adds the number of occupied cells of
+ * squares of cells, usually fixed blocks it keeps counts for, and the panel draws the result as a heatmap.
+ * Filling it costs one step per block with something in it, whatever the size of the world.
+ */
+public class DensityMap {
+
+    /**
+     * Viewport the map is for
+     */
+    private final Viewport viewport;
+
+    /**
+     * Number of occupied cells behind every pixel, row by row; fractions come from blocks bigger than a pixel
+     */
+    private final float[] occupied;
+
+    /**
+     * Constructs an empty map for a zoomed out viewport
+     * @param viewport viewport of the map
+     */
+    public DensityMap(Viewport viewport) {
+        this.viewport = viewport;
+        this.occupied = new float[viewport.getViewWidth() * viewport.getViewHeight()];
+    }
+
+    /**
+     * Getter for the viewport of the map
+     * @return the viewport
+     */
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    /**
+     * Empties the map, so that it can be filled again for the same viewport
+     */
+    public void clear() {
+        Arrays.fill(occupied, 0);
+    }
+
+    /**
+     * Adds the occupied cells of a square of cells. A square smaller than a pixel goes to the pixel of its center,
+     * a bigger one is spread evenly over its pixels.
+     * @param x x coordinate of the top left cell of the square
+     * @param y y coordinate of the top left cell of the square
+     * @param size side of the square in cells
+     * @param count number of occupied cells in the square
+     */
+    public void add(int x, int y, int size, int count) {
+        int cells = viewport.getCellsPerPixel();
+        int width = viewport.getViewWidth();
+        if (size <= cells) {
+            int px = Math.floorDiv(x + size / 2 - viewport.getFirstX(), cells);
+            int py = Math.floorDiv(y + size / 2 - viewport.getFirstY(), cells);
+            if (px >= 0 && py >= 0 && px < width && py < viewport.getViewHeight()) {
+                occupied[py * width + px] += count;
+            }
+            return;
+        }
+        float share = (float) count * cells * cells / ((float) size * size);
+        int left = Math.max(0, Math.floorDiv(x - viewport.getFirstX(), cells));
+        int top = Math.max(0, Math.floorDiv(y - viewport.getFirstY(), cells));
+        int right = Math.min(width, Math.floorDiv(x + size - 1 - viewport.getFirstX(), cells) + 1);
+        int bottom = Math.min(viewport.getViewHeight(), Math.floorDiv(y + size - 1 - viewport.getFirstY(), cells) + 1);
+        for (int py = top; py < bottom; py++) {
+            for (int px = left; px < right; px++) {
+                occupied[py * width + px] += share;
+            }
+        }
+    }
+
+    /**
+     * Share of occupied cells behind a pixel
+     * @param i index of the pixel, row by row
+     * @return number from 0 to 1
+     */
+    float getDensity(int i) {
+        int cells = viewport.getCellsPerPixel();
+        return Math.min(1f, occupied[i] / ((float) cells * cells));
+    }
+
+    /**
+     * Number of pixels of the map
+     * @return view width times view height
+     */
+    int size() {
+        return occupied.length;
+    }
+}
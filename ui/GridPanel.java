@@ -2,12 +2,20 @@ package ui;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
 
 
 /**
  * A drawable panel structured as a grid.
  * Provides some drawing methods suitable for pixel-like game entities.
+ * The panel shows the part of the world chosen by its Viewport: dragging with the mouse moves it and the wheel
+ * zooms. Grid positions are world cells, the ones outside of the view are not drawn.
  *
  */
 public class GridPanel extends JPanel {
@@ -16,6 +24,16 @@ public class GridPanel extends JPanel {
 	 * 
 	 */
 	private static final long serialVersionUID = 1L;
+    /**
+     * The panel is not made bigger than this many pixels along a side, bigger worlds are scrolled
+     */
+    public static final int MAX_VIEW_SIZE = 800;
+
+    /**
+     * Cells smaller than this many pixels are drawn without gridlines, whole squares of their color
+     */
+    private static final int MIN_GRID_CELL_SIZE = 4;
+
 	/**
 	 * Width of the panel
 	 */
@@ -25,28 +43,138 @@ public class GridPanel extends JPanel {
      */
     private final int gamePanelHeight;
 
+    /**
+     * Part of the world that is shown, set on the event dispatch thread and read by any thread
+     */
+    private volatile Viewport viewport;
+
+    /**
+     * Whether the view may be zoomed out past one cell per pixel, only if the game can tell how full the cells are
+     */
+    private boolean densityEnabled;
+
+    /**
+     * Told when the viewport changes, null if nobody listens
+     */
+    private Runnable viewportListener;
+
     /**
      * No information**
      */
     private BufferedImage gameImage;
 
     /**
-     * Size of the one square
+     * Pixels of the game image, drawing methods write packed ARGB values straight into this array
+     */
+    private final int[] pixels;
+
+    /**
+     * Pixels of the white canvas with the gridlines, drawn once for each cell size and copied under the game image
+     */
+    private int[] background;
+
+    /**
+     * Cell size the background is drawn for
+     */
+    private int backgroundCellSize;
+
+    /**
+     * Packed colors of the canvas and the gridlines
      */
-    private int gridSquareSize;
+    private static final int CANVAS_RGB = Color.WHITE.getRGB(), GRID_RGB = Color.LIGHT_GRAY.getRGB();
 
     /**
-     * Constructs a grid panel that can be drawn on
+     * Told the time of every paint in nanoseconds, null if nobody listens
+     */
+    private LongConsumer paintListener;
+
+    /**
+     * Constructs a grid panel that can be drawn on. It shows the whole grid if it fits into MAX_VIEW_SIZE pixels,
+     * otherwise its top left part.
      * @param gridWidth width of the grid
      * @param gridHeight height of the grid
      * @param gridSquareSize size of a grid square in pixels
      */
     public GridPanel(int gridWidth, int gridHeight, int gridSquareSize) {
-        this.gridSquareSize = gridSquareSize;
-        gamePanelWidth = gridWidth * gridSquareSize;
-        gamePanelHeight = gridHeight * gridSquareSize;
+        gamePanelWidth = (int) Math.min((long) gridWidth * gridSquareSize, MAX_VIEW_SIZE);
+        gamePanelHeight = (int) Math.min((long) gridHeight * gridSquareSize, MAX_VIEW_SIZE);
+        viewport = new Viewport(gridWidth, gridHeight, gamePanelWidth, gamePanelHeight, 0, 0, gridSquareSize, 1);
         gameImage = new BufferedImage(gamePanelWidth, gamePanelHeight, BufferedImage.TYPE_INT_ARGB);
+        pixels = ((DataBufferInt) gameImage.getRaster().getDataBuffer()).getData();
         setBackground(Color.WHITE);
+        MouseAdapter camera = new MouseAdapter() {
+            private Point last;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                last = e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                Viewport v = viewport;
+                Viewport moved = v.panned(last.x - e.getX(), last.y - e.getY());
+                // the drag point keeps the part of a cell it did not move through
+                if (moved.getFirstX() != v.getFirstX() || moved.getFirstY() != v.getFirstY()) {
+                    last = e.getPoint();
+                }
+                setViewport(moved);
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                setViewport(viewport.zoomed(-e.getWheelRotation(), e.getX(), e.getY(), densityEnabled));
+            }
+        };
+        addMouseListener(camera);
+        addMouseMotionListener(camera);
+        addMouseWheelListener(camera);
+    }
+
+    /**
+     * Getter for the part of the world that is shown
+     * @return the current viewport
+     */
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    /**
+     * Changes the part of the world that is shown, the game is told so that it draws everything again.
+     * Without density views, a viewport zoomed out past one cell per pixel is zoomed in to one cell per pixel.
+     * Must be called on the event dispatch thread.
+     * @param viewport new viewport, it must have the size of the panel
+     */
+    public void setViewport(Viewport viewport) {
+        if (!densityEnabled && viewport.isDensity()) {
+            viewport = viewport.zoomed(Integer.numberOfTrailingZeros(viewport.getCellsPerPixel()), 0, 0);
+        }
+        if (viewport.equals(this.viewport)) {
+            return;
+        }
+        this.viewport = viewport;
+        if (viewportListener != null) {
+            viewportListener.run();
+        }
+    }
+
+    /**
+     * Lets the view be zoomed out past one cell per pixel, set by games that can draw such views
+     * @param densityEnabled whether density views are allowed
+     */
+    public void setDensityEnabled(boolean densityEnabled) {
+        this.densityEnabled = densityEnabled;
+        if (!densityEnabled) {
+            setViewport(viewport);
+        }
+    }
+
+    /**
+     * Sets the listener that is told when the viewport changes
+     * @param viewportListener listener called on the event dispatch thread, or null
+     */
+    public void setViewportListener(Runnable viewportListener) {
+        this.viewportListener = viewportListener;
     }
 
     @Override
@@ -56,56 +184,198 @@ public class GridPanel extends JPanel {
 
     @Override
     protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
         super.paintComponent(g);
         if (gameImage != null) {
             g.drawImage(gameImage, 0, 0, null);
         }
+        if (paintListener != null) {
+            paintListener.accept(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Sets the listener that is told how long every paint of the panel takes
+     * @param paintListener listener called on the event dispatch thread with the time in nanoseconds, or null
+     */
+    public void setPaintListener(LongConsumer paintListener) {
+        this.paintListener = paintListener;
+    }
+
+    /**
+     * Copies the cached background, white canvas with gridlines, over the whole game image
+     */
+    public void drawBackground() {
+        int cellSize = viewport.getPixelsPerCell();
+        if (background == null || backgroundCellSize != cellSize) {
+            background = new int[pixels.length];
+            backgroundCellSize = cellSize;
+            Arrays.fill(background, CANVAS_RGB);
+            // cells are always drawn from the left and top edges, so the gridlines do not move with the view
+            if (cellSize >= MIN_GRID_CELL_SIZE) {
+                drawGrid(background);
+            }
+        }
+        System.arraycopy(background, 0, pixels, 0, pixels.length);
+    }
+
+    /**
+     * Draws a zoomed out view over the whole game image and repaints it. Empty pixels are white, the others are
+     * a shade from light orange to dark red by how full their cells are; the shade grows with the square root of
+     * the share, so that a single snake far out is still seen.
+     * @param density density map of the current viewport
+     */
+    public void drawDensity(DensityMap density) {
+        for (int i = 0; i < pixels.length; i++) {
+            float d = density.getDensity(i);
+            if (d <= 0) {
+                pixels[i] = CANVAS_RGB;
+            } else {
+                float t = (float) Math.sqrt(d);
+                int r = 255 - (int) (115 * t);
+                int g = (int) (200 * (1 - t));
+                int b = (int) (120 * (1 - t));
+                pixels[i] = 0xFF000000 | r << 16 | g << 8 | b;
+            }
+        }
+        repaint();
+    }
+
+    /**
+     * Copies the cached background of a single grid square, including its gridlines, over the game image
+     * @param gridX x position
+     * @param gridY y position
+     */
+    public void clearCell(int gridX, int gridY) {
+        if (background == null || backgroundCellSize != viewport.getPixelsPerCell()) {
+            drawBackground();
+            return;
+        }
+        if (!isOnPanel(gridX, gridY)) {
+            return;
+        }
+        Viewport v = viewport;
+        int size = v.getPixelsPerCell();
+        int x = v.toPixelX(gridX);
+        int y = v.toPixelY(gridY);
+        // a cell at the right or bottom edge may be cut
+        int width = Math.min(size, gamePanelWidth - x);
+        for (int row = y; row < Math.min(y + size, gamePanelHeight); row++) {
+            System.arraycopy(background, row * gamePanelWidth + x, pixels, row * gamePanelWidth + x, width);
+        }
+    }
+
+    /**
+     * Repaints only the rectangle of a single grid square
+     * @param gridX x position
+     * @param gridY y position
+     */
+    public void repaintCell(int gridX, int gridY) {
+        Viewport v = viewport;
+        repaint(v.toPixelX(gridX), v.toPixelY(gridY), v.getPixelsPerCell(), v.getPixelsPerCell());
     }
 
     /**
      * Repaints the panel to white
      */
     public void clearCanvas() {
-        Graphics g = gameImage.getGraphics();
-        g.setColor(Color.WHITE);
-        g.fillRect(0, 0, gameImage.getWidth(), getHeight());
-        g.dispose();
+        Arrays.fill(pixels, CANVAS_RGB);
+    }
+
+    /**
+     * Returns the width of the game image
+     * @return width in pixels
+     */
+    public int getImageWidth() {
+        return gamePanelWidth;
+    }
+
+    /**
+     * Returns the height of the game image
+     * @return height in pixels
+     */
+    public int getImageHeight() {
+        return gamePanelHeight;
+    }
+
+    /**
+     * Copies the pixels of the game image as drawn so far, on the thread that draws
+     * @param target array of at least getImageWidth() * getImageHeight() entries, row by row
+     */
+    public void copyPixels(int[] target) {
+        System.arraycopy(pixels, 0, target, 0, pixels.length);
     }
 
     /**
-     * Returns the number of grid squares along the width
-     * @return grid width
+     * Returns the number of grid squares visible along the width
+     * @return visible grid width
      */
     public int getGridWidth() {
-        return gamePanelWidth / gridSquareSize;
+        return viewport.getVisibleWidth();
     }
 
     /**
-     * Returns the number of grid squares along the height
-     * @return grid height
+     * Returns the number of grid squares visible along the height
+     * @return visible grid height
      */
     public int getGridHeight() {
-        return gamePanelHeight / gridSquareSize;
+        return viewport.getVisibleHeight();
     }
 
     /**
      * Draws gridlines
      */
     public void drawGrid() {
-        Graphics g = gameImage.getGraphics();
-        g.setColor(Color.LIGHT_GRAY);
+        drawGrid(pixels);
+    }
 
+    /**
+     * Draws gridlines into a pixel array of the panel size
+     * @param target pixels to draw on
+     */
+    private void drawGrid(int[] target) {
+        int gridSquareSize = viewport.getPixelsPerCell();
         // vertical grid
-        for (int i = 0; i < gamePanelWidth / gridSquareSize; i++) {
+        for (int i = 0; i * gridSquareSize < gamePanelWidth; i++) {
             int lineX = i * gridSquareSize;
-            g.drawLine(lineX, 0, lineX, gamePanelHeight);
+            for (int row = 0; row < gamePanelHeight; row++) {
+                target[row * gamePanelWidth + lineX] = GRID_RGB;
+            }
         }
         // horizontal grid
-        for (int i = 0; i < gamePanelHeight / gridSquareSize; i++) {
+        for (int i = 0; i * gridSquareSize < gamePanelHeight; i++) {
             int lineY = i * (gridSquareSize);
-            g.drawLine(0, lineY, gamePanelWidth, lineY);
+            Arrays.fill(target, lineY * gamePanelWidth, (lineY + 1) * gamePanelWidth, GRID_RGB);
+        }
+    }
+
+    /**
+     * Fills a rectangle of the game image, parts outside of the image are cut
+     * @param x left pixel
+     * @param y top pixel
+     * @param width width in pixels
+     * @param height height in pixels
+     * @param rgb packed ARGB color
+     */
+    private void fillRect(int x, int y, int width, int height, int rgb) {
+        int right = Math.min(x + width, gamePanelWidth);
+        int bottom = Math.min(y + height, gamePanelHeight);
+        if (x >= right) {
+            return;
         }
-        g.dispose();
+        for (int row = y; row < bottom; row++) {
+            Arrays.fill(pixels, row * gamePanelWidth + x, row * gamePanelWidth + right, rgb);
+        }
+    }
+
+    /**
+     * Checks whether a grid position is on the panel
+     * @param gridX x position
+     * @param gridY y position
+     * @return true if the position can be drawn
+     */
+    private boolean isOnPanel(int gridX, int gridY) {
+        return viewport.isVisible(gridX, gridY);
     }
 
     /**
@@ -115,16 +385,28 @@ public class GridPanel extends JPanel {
      * @param color fill color of the square
      */
     public void drawSquare(int gridX, int gridY, Color color) {
-        if (gridX < 0 || gridY < 0 ||
-                gridX >= gamePanelWidth / gridSquareSize || gridY >= gamePanelHeight / gridSquareSize) {
+        drawSquare(gridX, gridY, color.getRGB());
+    }
+
+    /**
+     * Draws a filled square in the given grid position, writing the pixels directly
+     * @param gridX x position
+     * @param gridY y position
+     * @param rgb packed ARGB fill color of the square, see Color.getRGB()
+     */
+    public void drawSquare(int gridX, int gridY, int rgb) {
+        Viewport v = viewport;
+        if (!v.isVisible(gridX, gridY)) {
+            return;
+        }
+        int gridSquareSize = v.getPixelsPerCell();
+        if (gridSquareSize < MIN_GRID_CELL_SIZE) {
+            fillRect(v.toPixelX(gridX), v.toPixelY(gridY), gridSquareSize, gridSquareSize, rgb);
             return;
         }
-        Graphics g = gameImage.getGraphics();
-        g.setColor(color);
-        int x = gridX * gridSquareSize + 1;
-        int y = gridY * gridSquareSize + 1;
-        g.fillRect(x, y, gridSquareSize - 1, gridSquareSize - 1);
-        g.dispose();
+        int x = v.toPixelX(gridX) + 1;
+        int y = v.toPixelY(gridY) + 1;
+        fillRect(x, y, gridSquareSize - 1, gridSquareSize - 1, rgb);
     }
 
     /**
@@ -132,20 +414,33 @@ public class GridPanel extends JPanel {
      * @param gridX x position
      * @param gridY y position
      * @param color fill color of the square
+     * @param color2 fill color of the inner square
      */
     public void drawSmallOval(int gridX, int gridY, Color color, Color color2) {
-        if (gridX < 0 || gridY < 0 ||
-                gridX >= gamePanelWidth / gridSquareSize || gridY >= gamePanelHeight / gridSquareSize) {
+        drawSmallOval(gridX, gridY, color.getRGB(), color2.getRGB());
+    }
+
+    /**
+     * Draws a small filled square with an inner square in the given grid position, writing the pixels directly
+     * @param gridX x position
+     * @param gridY y position
+     * @param rgb packed ARGB fill color of the square
+     * @param rgb2 packed ARGB fill color of the inner square
+     */
+    public void drawSmallOval(int gridX, int gridY, int rgb, int rgb2) {
+        Viewport v = viewport;
+        if (!v.isVisible(gridX, gridY)) {
+            return;
+        }
+        int gridSquareSize = v.getPixelsPerCell();
+        // too small for the border and the inner square, the cell is filled
+        if (gridSquareSize < 2 * MIN_GRID_CELL_SIZE) {
+            drawSquare(gridX, gridY, rgb);
             return;
         }
-        Graphics g = gameImage.getGraphics();
-        Graphics g1 = gameImage.getGraphics();
-        g.setColor(color);
-        g1.setColor(color2);
-        int x = gridX * gridSquareSize + 3;
-        int y = gridY * gridSquareSize + 3;
-        g.fillRect(x, y, gridSquareSize - 4, gridSquareSize - 4);
-        g1.fillRect(x+3, y+3, gridSquareSize - 10, gridSquareSize - 10);
-        g.dispose();
+        int x = v.toPixelX(gridX) + 3;
+        int y = v.toPixelY(gridY) + 3;
+        fillRect(x, y, gridSquareSize - 4, gridSquareSize - 4, rgb);
+        fillRect(x + 3, y + 3, gridSquareSize - 10, gridSquareSize - 10, rgb2);
     }
 }
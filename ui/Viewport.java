@@ -0,0 +1,265 @@
+package ui;
+
+
+/**
+ * Camera over the grid world: which part of the world the panel shows and how big it is drawn.
+ * Zoomed in, a cell is a square of pixelsPerCell pixels; zoomed out, a pixel stands for a square of
+ * cellsPerPixel cells and the panel shows how full those cells are instead of the cells themselves.
+ * A viewport never changes, moving or zooming gives a new one, so a frame can keep the viewport it was made for.
+ */
+public final class Viewport {
+
+    /**
+     * Cells are not drawn bigger than this many pixels
+     */
+    public static final int MAX_PIXELS_PER_CELL = 64;
+
+    /**
+     * Width and height of the world in cells
+     */
+    private final int worldWidth, worldHeight;
+
+    /**
+     * Width and height of the view in pixels
+     */
+    private final int viewWidth, viewHeight;
+
+    /**
+     * Cell shown at the top left corner of the view
+     */
+    private final int originX, originY;
+
+    /**
+     * Side of a cell in pixels, 1 when zoomed out
+     */
+    private final int pixelsPerCell;
+
+    /**
+     * Side in cells of the square a pixel stands for, 1 when zoomed in
+     */
+    private final int cellsPerPixel;
+
+    /**
+     * Constructs a viewport, values out of range are moved into it so that the view stays inside the world
+     * @param worldWidth width of the world in cells
+     * @param worldHeight height of the world in cells
+     * @param viewWidth width of the view in pixels
+     * @param viewHeight height of the view in pixels
+     * @param originX cell at the left edge of the view
+     * @param originY cell at the top edge of the view
+     * @param pixelsPerCell side of a cell in pixels
+     * @param cellsPerPixel side in cells of the square a pixel stands for, only used if pixelsPerCell is 1
+     */
+    public Viewport(int worldWidth, int worldHeight, int viewWidth, int viewHeight, int originX, int originY,
+            int pixelsPerCell, int cellsPerPixel) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        this.pixelsPerCell = Math.max(1, Math.min(pixelsPerCell, MAX_PIXELS_PER_CELL));
+        this.cellsPerPixel = this.pixelsPerCell > 1 ? 1 : Math.max(1, Math.min(cellsPerPixel, maxCellsPerPixel()));
+        this.originX = clamp(originX, worldWidth - cells(viewWidth));
+        this.originY = clamp(originY, worldHeight - cells(viewHeight));
+    }
+
+    /**
+     * Smallest zoom out at which the whole world fits into the view
+     * @return cells per pixel, a power of two
+     */
+    private int maxCellsPerPixel() {
+        int cells = 1;
+        while ((long) viewWidth * cells < worldWidth || (long) viewHeight * cells < worldHeight) {
+            cells *= 2;
+        }
+        return cells;
+    }
+
+    /**
+     * Number of cells along a number of pixels, a cell cut by the edge is counted
+     * @param pixels pixel count
+     * @return cell count, at most Integer.MAX_VALUE
+     */
+    private long cells(int pixels) {
+        return ((long) pixels * cellsPerPixel + pixelsPerCell - 1) / pixelsPerCell;
+    }
+
+    /**
+     * Moves a coordinate into 0..max
+     * @param value the coordinate
+     * @param max largest allowed value, nothing is allowed but 0 if it is negative
+     * @return the coordinate in range
+     */
+    private static int clamp(int value, long max) {
+        return (int) Math.max(0, Math.min(value, max));
+    }
+
+    /**
+     * Returns whether a pixel stands for more than one cell, then the panel draws a density map
+     * @return true if zoomed out past one cell per pixel
+     */
+    public boolean isDensity() {
+        return cellsPerPixel > 1;
+    }
+
+    /**
+     * Getter for the first visible column
+     * @return x coordinate of the cell at the left edge
+     */
+    public int getFirstX() {
+        return originX;
+    }
+
+    /**
+     * Getter for the first visible row
+     * @return y coordinate of the cell at the top edge
+     */
+    public int getFirstY() {
+        return originY;
+    }
+
+    /**
+     * Number of visible columns, cells partly visible at the edge included
+     * @return visible width in cells
+     */
+    public int getVisibleWidth() {
+        return (int) Math.min(cells(viewWidth), worldWidth - originX);
+    }
+
+    /**
+     * Number of visible rows, cells partly visible at the edge included
+     * @return visible height in cells
+     */
+    public int getVisibleHeight() {
+        return (int) Math.min(cells(viewHeight), worldHeight - originY);
+    }
+
+    /**
+     * Returns whether a cell is visible
+     * @param x x coordinate of the cell
+     * @param y y coordinate of the cell
+     * @return true if some of the cell is in the view
+     */
+    public boolean isVisible(int x, int y) {
+        return x >= originX && y >= originY && x - originX < getVisibleWidth() && y - originY < getVisibleHeight();
+    }
+
+    /**
+     * Left pixel of a column, zoomed in
+     * @param x x coordinate of the cell
+     * @return pixel x coordinate, may be outside the view
+     */
+    public int toPixelX(int x) {
+        return (x - originX) * pixelsPerCell;
+    }
+
+    /**
+     * Top pixel of a row, zoomed in
+     * @param y y coordinate of the cell
+     * @return pixel y coordinate, may be outside the view
+     */
+    public int toPixelY(int y) {
+        return (y - originY) * pixelsPerCell;
+    }
+
+    /**
+     * Getter for the side of a cell in pixels
+     * @return pixels per cell, 1 when zoomed out
+     */
+    public int getPixelsPerCell() {
+        return pixelsPerCell;
+    }
+
+    /**
+     * Getter for the side in cells of the square a pixel stands for
+     * @return cells per pixel, 1 when zoomed in
+     */
+    public int getCellsPerPixel() {
+        return cellsPerPixel;
+    }
+
+    /**
+     * Getter for the width of the view
+     * @return width in pixels
+     */
+    public int getViewWidth() {
+        return viewWidth;
+    }
+
+    /**
+     * Getter for the height of the view
+     * @return height in pixels
+     */
+    public int getViewHeight() {
+        return viewHeight;
+    }
+
+    /**
+     * Viewport moved by some pixels, as when the world is dragged the other way
+     * @param dx pixels to move to the right
+     * @param dy pixels to move down
+     * @return the moved viewport
+     */
+    public Viewport panned(int dx, int dy) {
+        return new Viewport(worldWidth, worldHeight, viewWidth, viewHeight,
+                originX + (int) Math.floorDiv((long) dx * cellsPerPixel, pixelsPerCell),
+                originY + (int) Math.floorDiv((long) dy * cellsPerPixel, pixelsPerCell), pixelsPerCell, cellsPerPixel);
+    }
+
+    /**
+     * Viewport zoomed by powers of two, the cell under the given pixel stays under it
+     * @param steps number of times to double the size of the cells, negative to zoom out
+     * @param pixelX x coordinate of the fixed pixel
+     * @param pixelY y coordinate of the fixed pixel
+     * @return the zoomed viewport
+     */
+    public Viewport zoomed(int steps, int pixelX, int pixelY) {
+        return zoomed(steps, pixelX, pixelY, true);
+    }
+
+    /**
+     * Viewport zoomed by powers of two, the cell under the given pixel stays under it
+     * @param steps number of times to double the size of the cells, negative to zoom out
+     * @param pixelX x coordinate of the fixed pixel
+     * @param pixelY y coordinate of the fixed pixel
+     * @param density whether it may be zoomed out past one cell per pixel
+     * @return the zoomed viewport
+     */
+    public Viewport zoomed(int steps, int pixelX, int pixelY, boolean density) {
+        long anchorX = originX + (long) pixelX * cellsPerPixel / pixelsPerCell;
+        long anchorY = originY + (long) pixelY * cellsPerPixel / pixelsPerCell;
+        int pixels = pixelsPerCell, cells = cellsPerPixel;
+        for (int i = 0; i < steps; i++) {
+            if (cells > 1) {
+                cells /= 2;
+            } else if (pixels * 2 <= MAX_PIXELS_PER_CELL) {
+                pixels *= 2;
+            }
+        }
+        for (int i = 0; i > steps; i--) {
+            if (pixels > 1) {
+                pixels /= 2;
+            } else if (density && cells < maxCellsPerPixel()) {
+                cells *= 2;
+            }
+        }
+        return new Viewport(worldWidth, worldHeight, viewWidth, viewHeight,
+                (int) (anchorX - (long) pixelX * cells / pixels), (int) (anchorY - (long) pixelY * cells / pixels),
+                pixels, cells);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Viewport)) {
+            return false;
+        }
+        Viewport v = (Viewport) o;
+        return worldWidth == v.worldWidth && worldHeight == v.worldHeight && viewWidth == v.viewWidth
+                && viewHeight == v.viewHeight && originX == v.originX && originY == v.originY
+                && pixelsPerCell == v.pixelsPerCell && cellsPerPixel == v.cellsPerPixel;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((originX * 31 + originY) * 31 + pixelsPerCell) * 31 + cellsPerPixel;
+    }
+}
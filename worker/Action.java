@@ -19,6 +19,38 @@ public class Action {
         STAY,
     }
 
+    /**
+     * Number of action codes: stay, reproduce, four moves and four eats in direction order
+     */
+    public static final int CODE_COUNT = 2 + 2 * Direction.values().length;
+
+    /**
+     * Shared actions without direction. Actions are immutable, so one object for each kind is enough.
+     */
+    public static final Action STAY = new Action(Type.STAY), REPRODUCE = new Action(Type.REPRODUCE);
+
+    /**
+     * Shared move and eat actions, indexed by direction ordinal
+     */
+    private static final Action[] MOVES = new Action[Direction.values().length],
+            EATS = new Action[Direction.values().length];
+
+    /**
+     * Shared actions indexed by their codes
+     */
+    private static final Action[] BY_CODE = new Action[CODE_COUNT];
+
+    static {
+        for (Direction dir : Direction.values()) {
+            MOVES[dir.ordinal()] = new Action(Type.MOVE, dir);
+            EATS[dir.ordinal()] = new Action(Type.EAT, dir);
+            BY_CODE[MOVES[dir.ordinal()].code] = MOVES[dir.ordinal()];
+            BY_CODE[EATS[dir.ordinal()].code] = EATS[dir.ordinal()];
+        }
+        BY_CODE[STAY.code] = STAY;
+        BY_CODE[REPRODUCE.code] = REPRODUCE;
+    }
+
     /**
      * Type for the current action
      */
@@ -27,6 +59,10 @@ public class Action {
      * Direction for the necessary action
      */
     private final Direction direction;
+    /**
+     * Number of the action, actions of the same type and direction have the same code
+     */
+    private final byte code;
 
     /**
      * Creates an action without direction
@@ -40,6 +76,7 @@ public class Action {
         }
         this.type = type;
         direction = null;
+        code = (byte) (type == Type.STAY ? 0 : 1);
     }
 
     /**
@@ -55,6 +92,47 @@ public class Action {
         }
         this.type = type;
         this.direction = direction;
+        code = (byte) ((type == Type.MOVE ? 2 : 2 + Direction.values().length) + direction.ordinal());
+    }
+
+    /**
+     * Returns the shared move action for a direction
+     * @param direction direction to move
+     * @return move action, no new object is created
+     */
+    public static Action move(Direction direction) {
+        return MOVES[direction.ordinal()];
+    }
+
+    /**
+     * Returns the shared eat action for a direction
+     * @param direction direction of the food
+     * @return eat action, no new object is created
+     */
+    public static Action eat(Direction direction) {
+        return EATS[direction.ordinal()];
+    }
+
+    /**
+     * Returns the shared action of a code
+     * @param code code of the action, from 0 to CODE_COUNT-1
+     * @return the action, no new object is created
+     * @throws IllegalArgumentException if the code is not a valid action
+     */
+    public static Action fromCode(int code) {
+        if (code < 0 || code >= CODE_COUNT) {
+            throw new IllegalArgumentException("Invalid action code " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * Getter for the code of the action, a number that fits into 4 bits: 0 for stay, 1 for reproduce,
+     * 2 plus the direction ordinal for moves and 6 plus the direction ordinal for eats
+     * @return action code
+     */
+    public byte getCode() {
+        return code;
     }
 
     /**
@@ -0,0 +1,83 @@
+package worker;
+
+import java.util.Arrays;
+
+/**
+ * Actions of all snakes of a tick, one byte for each snake holding the code of Action.getCode().
+ * Strategies write codes into it without touching action objects, and the replay recorder copies them as they are.
+ * Threads may write different indices at the same time.
+ * @author Burak
+ *
+ */
+public final class ActionBuffer {
+
+	/**
+	 * Action code of every snake, the first size entries are valid
+	 */
+	private byte[] codes = new byte[16];
+	/**
+	 * Number of snakes of the tick
+	 */
+	private int size;
+
+	/**
+	 * Makes the buffer hold the actions of a new tick, every snake stays until its action is set
+	 * @param size number of snakes
+	 */
+	void reset(int size) {
+		if (codes.length < size) {
+			codes = new byte[Math.max(size, codes.length * 2)];
+		} else {
+			Arrays.fill(codes, 0, size, Action.STAY.getCode());
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Getter for the number of snakes of the tick
+	 * @return number of actions in the buffer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Getter for the code of an action
+	 * @param i index of the snake
+	 * @return action code
+	 */
+	public byte get(int i) {
+		return codes[i];
+	}
+
+	/**
+	 * Getter for an action
+	 * @param i index of the snake
+	 * @return the shared action object of the code
+	 */
+	public Action getAction(int i) {
+		return Action.fromCode(codes[i]);
+	}
+
+	/**
+	 * Sets the action of a snake by its code
+	 * @param i index of the snake
+	 * @param code code of the action, as given by Action.getCode()
+	 * @throws IllegalArgumentException if the code is not a valid action
+	 */
+	public void set(int i, byte code) {
+		if (code < 0 || code >= Action.CODE_COUNT) {
+			throw new IllegalArgumentException("Invalid action code " + code);
+		}
+		codes[i] = code;
+	}
+
+	/**
+	 * Sets the action of a snake
+	 * @param i index of the snake
+	 * @param action the action, null is the same as staying
+	 */
+	public void set(int i, Action action) {
+		codes[i] = action == null ? Action.STAY.getCode() : action.getCode();
+	}
+}
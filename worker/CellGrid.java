@@ -0,0 +1,211 @@
+package worker;
+
+import java.util.Arrays;
+
+import assets.Node.Value;
+
+/**
+ * Compact occupancy grid of the game. Every cell is a single byte in one flat array indexed by y*width+x,
+ * so the map costs one byte per cell instead of one Node object per cell.
+ * The grid also keeps an index of the empty cells, so that a uniformly random empty cell is found in
+ * constant time however full the board is. The index costs 8 more bytes for each cell, 9 bytes in all, so a
+ * 10,000x10,000 world needs about 900 MB; the byte map alone would be 100 MB. The occupied cells of every
+ * block are counted too, for drawing a zoomed out world without looking at every cell.
+ * Worlds that are mostly empty are cheaper as a ChunkedGrid, which SnakeSimulator picks by default for worlds
+ * above 4096x4096 cells; it costs memory only where there are snakes or food but picks empty cells slower.
+ * @author Burak
+ *
+ */
+public class CellGrid implements WorldGrid {
+
+	/**
+	 * Width and height of the grid
+	 */
+	private final int width, height;
+
+	/**
+	 * States of the cells, row by row
+	 */
+	private final byte[] cells;
+
+	/**
+	 * Dense list of the empty cells, first freeCount entries are valid
+	 */
+	private final int[] free;
+	/**
+	 * Position of each empty cell in the free list, meaningless for the other cells
+	 */
+	private final int[] position;
+	/**
+	 * Number of empty cells
+	 */
+	private int freeCount;
+	/**
+	 * Number of blocks along the width
+	 */
+	private final int blocksX;
+	/**
+	 * Number of occupied cells of every block, row by row
+	 */
+	private final byte[] blocks;
+	/**
+	 * Incremented at every change, so that derived data knows when it is out of date
+	 */
+	private long version;
+
+	/**
+	 * Constructor for an empty grid
+	 * @param width width of the grid
+	 * @param height height of the grid
+	 * @throws IllegalArgumentException if the grid is empty or does not fit into a single array
+	 */
+	public CellGrid(int width, int height) {
+		if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Invalid grid size " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		this.cells = new byte[width * height];
+		this.free = new int[cells.length];
+		this.position = new int[cells.length];
+		for (int i = 0; i < cells.length; i++) {
+			free[i] = i;
+			position[i] = i;
+		}
+		this.freeCount = cells.length;
+		this.blocksX = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		this.blocks = new byte[blocksX * ((height + BLOCK_SIZE - 1) / BLOCK_SIZE)];
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public boolean isInside(int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height;
+	}
+
+	@Override
+	public long index(int x, int y) {
+		return y * width + x;
+	}
+
+	@Override
+	public byte get(int x, int y) {
+		return cells[y * width + x];
+	}
+
+	@Override
+	public void set(int x, int y, byte state) {
+		int cell = y * width + x;
+		byte old = cells[cell];
+		cells[cell] = state;
+		version++;
+		if (old == EMPTY && state != EMPTY) {
+			// last free cell takes the place of the removed one
+			int last = free[--freeCount];
+			free[position[cell]] = last;
+			position[last] = position[cell];
+			blocks[(y / BLOCK_SIZE) * blocksX + x / BLOCK_SIZE]++;
+		} else if (old != EMPTY && state == EMPTY) {
+			free[freeCount] = cell;
+			position[cell] = freeCount++;
+			blocks[(y / BLOCK_SIZE) * blocksX + x / BLOCK_SIZE]--;
+		}
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(cells, EMPTY);
+		for (int i = 0; i < cells.length; i++) {
+			free[i] = i;
+			position[i] = i;
+		}
+		freeCount = cells.length;
+		Arrays.fill(blocks, (byte) 0);
+		version++;
+	}
+
+	@Override
+	public byte[] copyCells(int x, int y, int width, int height) {
+		byte[] copy = new byte[width * height];
+		for (int row = 0; row < height; row++) {
+			System.arraycopy(cells, (y + row) * this.width + x, copy, row * width, width);
+		}
+		return copy;
+	}
+
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	public long getFreeCount() {
+		return freeCount;
+	}
+
+	@Override
+	public void sortFreeCells() {
+		int n = 0;
+		for (int cell = 0; cell < cells.length; cell++) {
+			if (cells[cell] == EMPTY) {
+				free[n] = cell;
+				position[cell] = n++;
+			}
+		}
+	}
+
+	@Override
+	public void visitBlocks(int x0, int y0, int x1, int y1, BlockVisitor visitor) {
+		for (int by = Math.max(0, y0) / BLOCK_SIZE; by * BLOCK_SIZE < Math.min(y1, height); by++) {
+			for (int bx = Math.max(0, x0) / BLOCK_SIZE; bx * BLOCK_SIZE < Math.min(x1, width); bx++) {
+				int count = blocks[by * blocksX + bx];
+				if (count > 0) {
+					visitor.visit(bx * BLOCK_SIZE, by * BLOCK_SIZE, BLOCK_SIZE, count);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Picks a uniformly random empty cell in constant time
+	 * @param random random numbers to pick with
+	 * @return index of the cell, or -1 if the board is full
+	 */
+	@Override
+	public long randomFreeCell(RandomSource random) {
+		if (freeCount == 0) {
+			return -1;
+		}
+		return free[random.nextInt(freeCount)];
+	}
+
+	@Override
+	public int cellX(long cell) {
+		return (int) cell % width;
+	}
+
+	@Override
+	public int cellY(long cell) {
+		return (int) cell / width;
+	}
+
+	/**
+	 * Converts a cell state to the node value used by the rest of the game
+	 * @param state state of a cell
+	 * @return corresponding node value
+	 */
+	public static Value toValue(byte state) {
+		if (state == EMPTY) return Value.EMPTY;
+		if (state == FOOD) return Value.FOOD;
+		return Value.SNAKE;
+	}
+}
@@ -0,0 +1,147 @@
+package worker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Saves the whole state of a game into a file and loads it back. The state is a keyframe of ReplayFormat,
+ * so a snake costs its head and 2 bits for each other part, followed by the state of the random numbers of
+ * the game and of every snake, so a loaded game continues exactly like the saved one would have.
+ * The grid is not written, it follows from the snakes and the food. Saving puts the empty cells of the game into
+ * cell order, so that the saved and the loaded game spawn food at the same cells.
+ * Layout: header (magic, version, width, height), length of the body as 8 bytes, body, CRC32 of the body.
+ * A checkpoint is written into a temporary file that replaces the old file only when it is complete, so a process
+ * that dies while saving leaves the previous checkpoint.
+ * @author Burak
+ *
+ */
+public final class Checkpoint {
+
+	/**
+	 * First 4 bytes of a checkpoint file, "SNKC"
+	 */
+	private static final int MAGIC = 0x534E4B43;
+	/**
+	 * Version of the format
+	 */
+	private static final int VERSION = 1;
+	/**
+	 * Size of the header and of the body length
+	 */
+	private static final int HEADER_SIZE = 24;
+
+	/**
+	 * Only static members
+	 */
+	private Checkpoint() {
+	}
+
+	/**
+	 * Saves the state of a game, it must not tick at the same time
+	 * @param game game to save
+	 * @param file file to write, it is replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save(SnakeSimulator game, Path file) throws IOException {
+		game.getMap().sortFreeCells();
+		ReplayFormat.Buffer body = new ReplayFormat.Buffer();
+		ReplayFormat.writeKeyframe(game, body);
+		writeRandom(game.getRandom(), body);
+		SnakePopulation snakes = game.getPopulation();
+		for (int i = 0; i < snakes.getCount(); i++) {
+			writeRandom(snakes.getRandom(i), body);
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putInt(game.getGridWidth()).putInt(game.getGridHeight());
+		header.putLong(body.size()).flip();
+		CRC32 crc = new CRC32();
+		crc.update(body.asByteBuffer());
+		ByteBuffer footer = ByteBuffer.allocate(4);
+		footer.putInt((int) crc.getValue()).flip();
+
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer[] parts = {header, body.asByteBuffer(), footer};
+			long remaining = HEADER_SIZE + body.size() + 4;
+			while (remaining > 0) {
+				remaining -= channel.write(parts);
+			}
+			channel.force(false);
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Writes the state of a random source
+	 * @param random the source
+	 * @param out buffer to write into
+	 */
+	private static void writeRandom(RandomSource random, ReplayFormat.Buffer out) {
+		out.writeLong(random.getSeed());
+		out.writeLong(random.getGamma());
+	}
+
+	/**
+	 * Loads a saved state into a game, everything the game had before is removed
+	 * @param game game to load into, it must have the size of the saved one and must not tick at the same time
+	 * @param file checkpoint file
+	 * @throws IOException if the file cannot be read, is not a checkpoint of the game's size or is damaged
+	 */
+	public static void restore(SnakeSimulator game, Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE + 4 || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Not a checkpoint file or too big to map");
+			}
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (mapped.getInt() != MAGIC) {
+				throw new IOException("Not a checkpoint file");
+			}
+			if (mapped.getInt() != VERSION) {
+				throw new IOException("Unsupported checkpoint version");
+			}
+			int width = mapped.getInt();
+			int height = mapped.getInt();
+			if (width != game.getGridWidth() || height != game.getGridHeight()) {
+				throw new IOException("Checkpoint is saved on a " + width + "x" + height + " grid");
+			}
+			long length = mapped.getLong();
+			if (length != channel.size() - HEADER_SIZE - 4) {
+				throw new IOException("Checkpoint file is cut");
+			}
+			ByteBuffer body = mapped.slice();
+			body.limit((int) length);
+			CRC32 crc = new CRC32();
+			crc.update(body.duplicate());
+			if ((int) crc.getValue() != mapped.getInt(HEADER_SIZE + (int) length)) {
+				throw new IOException("Checkpoint file is damaged");
+			}
+
+			ReplayFormat.readKeyframe(body, game);
+			game.setRandom(readRandom(body));
+			SnakePopulation snakes = game.getPopulation();
+			for (int i = 0; i < snakes.getCount(); i++) {
+				snakes.setRandom(i, readRandom(body));
+			}
+			game.getMap().sortFreeCells();
+		}
+	}
+
+	/**
+	 * Reads the state of a random source
+	 * @param in buffer to read from
+	 * @return the source
+	 */
+	private static RandomSource readRandom(ByteBuffer in) {
+		long seed = in.getLong();
+		return new RandomSource(seed, in.getLong());
+	}
+}
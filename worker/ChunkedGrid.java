@@ -0,0 +1,417 @@
+package worker;
+
+import java.util.Arrays;
+
+/**
+ * Sparse occupancy grid for big worlds. The world is divided into square chunks of 64x64 cells, a chunk gets its
+ * byte array when its first cell is set and gives it back when its last cell is emptied, so a world costs about
+ * 4 KB for each chunk that has a snake or food in it and nothing for the empty space. Creating the grid takes
+ * constant time whatever its size, and worlds may have more cells than an int can count.
+ * Empty cells are not indexed; a random empty cell is found by trying a few random cells, which is quick as long as
+ * most of the world is empty. If they all fail, the empty cell is counted out over the allocated chunks, which
+ * costs a sort of the chunks but never spins however full the world is. A nearly full world that fits into memory
+ * is still better kept in a CellGrid.
+ * @author Burak
+ *
+ */
+public class ChunkedGrid implements WorldGrid {
+
+	/**
+	 * Log of the side length of a chunk
+	 */
+	private static final int CHUNK_BITS = 6;
+	/**
+	 * Side length of a chunk in cells
+	 */
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	/**
+	 * Mask of the position of a cell inside its chunk
+	 */
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	/**
+	 * Number of blocks along the side of a chunk
+	 */
+	private static final int CHUNK_BLOCKS = CHUNK_SIZE / BLOCK_SIZE;
+	/**
+	 * Random cells tried before the empty cell is counted out, a world that is at most 90% full fails all of
+	 * them less than once in 10^32 picks
+	 */
+	private static final int RANDOM_TRIES = 32;
+
+	/**
+	 * Width and height of the grid
+	 */
+	private final int width, height;
+	/**
+	 * Slot of every allocated chunk, keyed by the chunk row in the upper and the chunk column in the lower half
+	 */
+	private final LongIntMap slots = new LongIntMap();
+	/**
+	 * Cells of the chunk of every slot, row by row, null for unused slots
+	 */
+	private byte[][] chunks = new byte[16][];
+	/**
+	 * Number of cells that are not empty in the chunk of every slot
+	 */
+	private int[] occupied = new int[16];
+	/**
+	 * Number of cells that are not empty in every block of the chunk of every slot, row by row
+	 */
+	private byte[][] blocks = new byte[16][];
+	/**
+	 * Key of the chunk of every slot
+	 */
+	private long[] keys = new long[16];
+	/**
+	 * Unused slots, first freeSlotCount entries are valid
+	 */
+	private int[] freeSlots = new int[16];
+	/**
+	 * Number of unused slots
+	 */
+	private int freeSlotCount;
+	/**
+	 * Number of slots ever used, slots from here on are new
+	 */
+	private int slotCount;
+	/**
+	 * Number of cells that are not empty
+	 */
+	private long occupiedCount;
+	/**
+	 * Incremented at every change, so that derived data knows when it is out of date
+	 */
+	private long version;
+
+	/**
+	 * Constructor for an empty grid, nothing is allocated for the cells
+	 * @param width width of the grid
+	 * @param height height of the grid
+	 * @throws IllegalArgumentException if the grid is empty
+	 */
+	public ChunkedGrid(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Invalid grid size " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Key of the chunk of a position
+	 * @param x x coordinate of a cell
+	 * @param y y coordinate of a cell
+	 * @return key of the chunk in the slot map
+	 */
+	private static long chunkKey(int x, int y) {
+		return ((long) (y >>> CHUNK_BITS) << 32) | (x >>> CHUNK_BITS);
+	}
+
+	/**
+	 * Index of a cell inside its chunk
+	 * @param x x coordinate of the cell
+	 * @param y y coordinate of the cell
+	 * @return index in the byte array of the chunk
+	 */
+	private static int offset(int x, int y) {
+		return ((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK);
+	}
+
+	@Override
+	public byte get(int x, int y) {
+		int slot = slots.get(chunkKey(x, y));
+		return slot < 0 ? EMPTY : chunks[slot][offset(x, y)];
+	}
+
+	@Override
+	public void set(int x, int y, byte state) {
+		long key = chunkKey(x, y);
+		int slot = slots.get(key);
+		if (slot < 0) {
+			if (state == EMPTY) {
+				return;
+			}
+			slot = allocate(key);
+		}
+		byte[] chunk = chunks[slot];
+		int offset = offset(x, y);
+		byte old = chunk[offset];
+		chunk[offset] = state;
+		version++;
+		if (old == EMPTY && state != EMPTY) {
+			occupied[slot]++;
+			occupiedCount++;
+			blocks[slot][block(x, y)]++;
+		} else if (old != EMPTY && state == EMPTY) {
+			occupiedCount--;
+			blocks[slot][block(x, y)]--;
+			if (--occupied[slot] == 0) {
+				// every cell of the chunk is empty again, its memory is given back
+				slots.remove(key);
+				chunks[slot] = null;
+				blocks[slot] = null;
+				if (freeSlotCount == freeSlots.length) {
+					freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+				}
+				freeSlots[freeSlotCount++] = slot;
+			}
+		}
+	}
+
+	/**
+	 * Index of the block of a cell inside its chunk
+	 * @param x x coordinate of the cell
+	 * @param y y coordinate of the cell
+	 * @return index in the block counts of the chunk
+	 */
+	private static int block(int x, int y) {
+		return ((y & CHUNK_MASK) / BLOCK_SIZE) * CHUNK_BLOCKS + (x & CHUNK_MASK) / BLOCK_SIZE;
+	}
+
+	/**
+	 * Creates an empty chunk
+	 * @param key key of the chunk
+	 * @return slot of the chunk
+	 */
+	private int allocate(long key) {
+		int slot;
+		if (freeSlotCount > 0) {
+			slot = freeSlots[--freeSlotCount];
+		} else {
+			if (slotCount == chunks.length) {
+				chunks = Arrays.copyOf(chunks, slotCount * 2);
+				occupied = Arrays.copyOf(occupied, slotCount * 2);
+				blocks = Arrays.copyOf(blocks, slotCount * 2);
+				keys = Arrays.copyOf(keys, slotCount * 2);
+			}
+			slot = slotCount++;
+		}
+		chunks[slot] = new byte[CHUNK_SIZE * CHUNK_SIZE];
+		blocks[slot] = new byte[CHUNK_BLOCKS * CHUNK_BLOCKS];
+		occupied[slot] = 0;
+		keys[slot] = key;
+		slots.put(key, slot);
+		return slot;
+	}
+
+	@Override
+	public void clear() {
+		slots.clear();
+		Arrays.fill(chunks, null);
+		Arrays.fill(blocks, null);
+		freeSlotCount = 0;
+		slotCount = 0;
+		occupiedCount = 0;
+		version++;
+	}
+
+	/**
+	 * Getter for the number of chunks that have memory
+	 * @return allocated chunk count
+	 */
+	public int getChunkCount() {
+		return slots.size();
+	}
+
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	public long getFreeCount() {
+		return (long) width * height - occupiedCount;
+	}
+
+	/**
+	 * Picks a uniformly random empty cell by trying up to RANDOM_TRIES random cells, then by counting out a random
+	 * one of the empty cells, see nthFreeCell(...)
+	 * @param random random numbers to pick with
+	 * @return index of the cell, or -1 if the board is full
+	 */
+	@Override
+	public long randomFreeCell(RandomSource random) {
+		long freeCount = getFreeCount();
+		if (freeCount == 0) {
+			return -1;
+		}
+		for (int i = 0; i < RANDOM_TRIES; i++) {
+			int x = random.nextInt(width);
+			int y = random.nextInt(height);
+			if (get(x, y) == EMPTY) {
+				return index(x, y);
+			}
+		}
+		return nthFreeCell(random.nextLong(freeCount));
+	}
+
+	/**
+	 * Finds an empty cell by its rank. The cells are ranked chunk by chunk in the order of the chunk rows and
+	 * columns and row by row inside a chunk, so the result depends only on the empty cells. Runs of chunks
+	 * without memory are empty and skipped at once, so it costs a sort of the allocated chunks and a look at
+	 * the cells of at most one chunk.
+	 * @param rank rank of the cell among the empty cells, less than getFreeCount()
+	 * @return index of the cell
+	 */
+	private long nthFreeCell(long rank) {
+		long[] sorted = new long[slots.size()];
+		int count = 0;
+		for (int slot = 0; slot < slotCount; slot++) {
+			if (chunks[slot] != null) {
+				sorted[count++] = keys[slot];
+			}
+		}
+		// chunk keys compare like the positions of the chunks in row order
+		Arrays.sort(sorted);
+		long gapStart = 0;
+		for (long key : sorted) {
+			int cx = (int) key, cy = (int) (key >>> 32);
+			long chunkStart = cellsBefore(cx, cy);
+			if (rank < chunkStart - gapStart) {
+				return emptyCell(gapStart + rank);
+			}
+			rank -= chunkStart - gapStart;
+			int slot = slots.get(key);
+			int w = Math.min(CHUNK_SIZE, width - (cx << CHUNK_BITS));
+			int h = Math.min(CHUNK_SIZE, height - (cy << CHUNK_BITS));
+			if (rank < w * h - occupied[slot]) {
+				byte[] chunk = chunks[slot];
+				for (int y = 0; y < h; y++) {
+					for (int x = 0; x < w; x++) {
+						if (chunk[(y << CHUNK_BITS) | x] == EMPTY && rank-- == 0) {
+							return index((cx << CHUNK_BITS) + x, (cy << CHUNK_BITS) + y);
+						}
+					}
+				}
+			}
+			rank -= w * h - occupied[slot];
+			gapStart = chunkStart + w * h;
+		}
+		return emptyCell(gapStart + rank);
+	}
+
+	/**
+	 * Number of cells in the chunks before a chunk, counting the chunks row by row
+	 * @param cx column of the chunk
+	 * @param cy row of the chunk
+	 * @return cell count
+	 */
+	private long cellsBefore(int cx, int cy) {
+		long top = (long) cy << CHUNK_BITS;
+		int h = (int) Math.min(CHUNK_SIZE, height - top);
+		return top * width + (long) h * Math.min((long) cx << CHUNK_BITS, width);
+	}
+
+	/**
+	 * Finds a cell by its rank among all cells when counted as in cellsBefore(...), used inside chunks without
+	 * memory
+	 * @param ordinal rank of the cell among all cells
+	 * @return index of the cell
+	 */
+	private long emptyCell(long ordinal) {
+		long rowCells = (long) CHUNK_SIZE * width;
+		int cy = (int) (ordinal / rowCells);
+		long rest = ordinal - cy * rowCells;
+		int h = Math.min(CHUNK_SIZE, height - (cy << CHUNK_BITS));
+		int cx = (int) (rest / ((long) h * CHUNK_SIZE));
+		int inside = (int) (rest - (long) cx * h * CHUNK_SIZE);
+		int w = Math.min(CHUNK_SIZE, width - (cx << CHUNK_BITS));
+		return index((cx << CHUNK_BITS) + inside % w, (cy << CHUNK_BITS) + inside / w);
+	}
+
+	/**
+	 * Nothing to do, random picks depend only on the random numbers and the empty cells already
+	 */
+	@Override
+	public void sortFreeCells() {
+	}
+
+	/**
+	 * Visits the blocks of the chunks in the rectangle. Few chunks are looked up one by one, many are found by
+	 * going over the allocated ones, so a far zoomed out view of a huge world costs as much as its snakes.
+	 */
+	@Override
+	public void visitBlocks(int x0, int y0, int x1, int y1, BlockVisitor visitor) {
+		x0 = Math.max(0, x0);
+		y0 = Math.max(0, y0);
+		x1 = Math.min(x1, width);
+		y1 = Math.min(y1, height);
+		if (x0 >= x1 || y0 >= y1) {
+			return;
+		}
+		int cx0 = x0 >>> CHUNK_BITS, cy0 = y0 >>> CHUNK_BITS;
+		int cx1 = (x1 - 1) >>> CHUNK_BITS, cy1 = (y1 - 1) >>> CHUNK_BITS;
+		if ((long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1) <= slots.size()) {
+			for (int cy = cy0; cy <= cy1; cy++) {
+				for (int cx = cx0; cx <= cx1; cx++) {
+					int slot = slots.get(((long) cy << 32) | cx);
+					if (slot >= 0) {
+						visitChunk(slot, x0, y0, x1, y1, visitor);
+					}
+				}
+			}
+		} else {
+			for (int slot = 0; slot < slotCount; slot++) {
+				if (chunks[slot] == null) {
+					continue;
+				}
+				int cx = (int) keys[slot], cy = (int) (keys[slot] >>> 32);
+				if (cx >= cx0 && cx <= cx1 && cy >= cy0 && cy <= cy1) {
+					visitChunk(slot, x0, y0, x1, y1, visitor);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Visits the occupied blocks of a chunk that touch a rectangle
+	 * @param slot slot of the chunk
+	 * @param x0 left column of the rectangle
+	 * @param y0 top row of the rectangle
+	 * @param x1 column after the right edge
+	 * @param y1 row after the bottom edge
+	 * @param visitor told about every block
+	 */
+	private void visitChunk(int slot, int x0, int y0, int x1, int y1, BlockVisitor visitor) {
+		int left = (int) keys[slot] << CHUNK_BITS, top = (int) (keys[slot] >>> 32) << CHUNK_BITS;
+		byte[] counts = blocks[slot];
+		for (int i = 0; i < counts.length; i++) {
+			int x = left + (i % CHUNK_BLOCKS) * BLOCK_SIZE;
+			int y = top + (i / CHUNK_BLOCKS) * BLOCK_SIZE;
+			if (counts[i] > 0 && x < x1 && y < y1 && x + BLOCK_SIZE > x0 && y + BLOCK_SIZE > y0) {
+				visitor.visit(x, y, BLOCK_SIZE, counts[i]);
+			}
+		}
+	}
+
+	/**
+	 * Copies a rectangle of cells, the row of every chunk it crosses is copied at once
+	 */
+	@Override
+	public byte[] copyCells(int x, int y, int width, int height) {
+		byte[] copy = new byte[width * height];
+		for (int row = 0; row < height; row++) {
+			int cy = y + row;
+			for (int cx = x; cx < x + width;) {
+				int length = Math.min(CHUNK_SIZE - (cx & CHUNK_MASK), x + width - cx);
+				int slot = slots.get(chunkKey(cx, cy));
+				// missing chunks are empty, the copy is already zero there
+				if (slot >= 0) {
+					System.arraycopy(chunks[slot], offset(cx, cy), copy, row * width + cx - x, length);
+				}
+				cx += length;
+			}
+		}
+		return copy;
+	}
+}
@@ -0,0 +1,22 @@
+package worker;
+
+/**
+ * Way the snakes of a game choose their actions. A strategy gets what the whole population senses at once and
+ * writes one action code for each snake, so it is free to go over the snakes in any order, split them over threads
+ * or handle several at a time, and the game does not change when another strategy is used.
+ * The default one is GreedyStrategy.
+ * @author Burak
+ *
+ */
+@FunctionalInterface
+public interface DecisionStrategy {
+
+	/**
+	 * Decides the actions of all snakes of a tick. Nothing changes while it runs, the actions are executed
+	 * afterwards in snake order, so a move into a cell taken by an earlier snake becomes a stay.
+	 * For runs that are the same for the same seed, a snake should only use its own random numbers.
+	 * @param sensors surroundings of the snakes 0 to sensors.getCount()-1
+	 * @param actions buffer to write the action of snake i at index i, every snake stays if nothing is written
+	 */
+	void decide(SnakeSensors sensors, ActionBuffer actions);
+}
@@ -0,0 +1,142 @@
+package worker;
+
+import java.util.Arrays;
+
+import game.Direction;
+
+/**
+ * Distance field shared by all snakes. It keeps for every cell the length of the shortest path to the nearest
+ * food, going only through empty cells. It is computed once per tick with a breadth first search from all food
+ * cells, after that every snake finds its best next step by looking at the four neighbors of its head.
+ * @author Burak
+ *
+ */
+public class FlowField {
+
+	/**
+	 * Distance of the cells from which no food can be reached
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	/**
+	 * Directions in ordinal order
+	 */
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	/**
+	 * Width and height of the field
+	 */
+	private final int width, height;
+	/**
+	 * Distance of every cell to the nearest food, row by row
+	 */
+	private final int[] distance;
+	/**
+	 * Queue of the breadth first search, reused at every computation
+	 */
+	private final int[] queue;
+	/**
+	 * Version of the map the field was computed for, -1 if it was never computed
+	 */
+	private long version = -1;
+
+	/**
+	 * Constructor for the field of a map
+	 * @param width width of the map
+	 * @param height height of the map
+	 * @throws IllegalArgumentException if the map has too many cells for one array
+	 */
+	public FlowField(int width, int height) {
+		if ((long) width * height > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Distance field of " + width + "x" + height + " does not fit into one array");
+		}
+		this.width = width;
+		this.height = height;
+		this.distance = new int[width * height];
+		this.queue = new int[width * height];
+	}
+
+	/**
+	 * Computes the distances again if the map has changed since the last computation
+	 * @param map map of the game
+	 */
+	public void update(WorldGrid map) {
+		if (map.getVersion() == version) {
+			return;
+		}
+		version = map.getVersion();
+		Arrays.fill(distance, UNREACHABLE);
+		int tail = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (map.get(x, y) == WorldGrid.FOOD) {
+					distance[y * width + x] = 0;
+					queue[tail++] = y * width + x;
+				}
+			}
+		}
+		for (int head = 0; head < tail; head++) {
+			int cell = queue[head];
+			int x = cell % width;
+			int y = cell / width;
+			int next = distance[cell] + 1;
+			if (y > 0) tail = visit(map, x, y - 1, next, tail);
+			if (y < height - 1) tail = visit(map, x, y + 1, next, tail);
+			if (x > 0) tail = visit(map, x - 1, y, next, tail);
+			if (x < width - 1) tail = visit(map, x + 1, y, next, tail);
+		}
+	}
+
+	/**
+	 * Sets the distance of an empty cell that is seen for the first time and adds it to the queue
+	 * @param map map of the game
+	 * @param x x coordinate of the cell
+	 * @param y y coordinate of the cell
+	 * @param value distance of the cell
+	 * @param tail end of the queue
+	 * @return new end of the queue
+	 */
+	private int visit(WorldGrid map, int x, int y, int value, int tail) {
+		int cell = y * width + x;
+		if (distance[cell] == UNREACHABLE && map.get(x, y) == WorldGrid.EMPTY) {
+			distance[cell] = value;
+			queue[tail++] = cell;
+		}
+		return tail;
+	}
+
+	/**
+	 * Getter for the distance of a cell to the nearest food
+	 * @param x x coordinate of the cell
+	 * @param y y coordinate of the cell
+	 * @return length of the shortest path, UNREACHABLE if there is none or the cell is outside
+	 */
+	public int getDistance(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return UNREACHABLE;
+		}
+		return distance[y * width + x];
+	}
+
+	/**
+	 * Finds the neighbors of a head that are on a shortest path to the nearest food
+	 * @param headX x coordinate of the head
+	 * @param headY y coordinate of the head
+	 * @return bitmask of the best directions, bit i belongs to the direction with ordinal i, zero if no food
+	 * can be reached
+	 */
+	public int getBestDirections(int headX, int headY) {
+		int best = UNREACHABLE;
+		int mask = 0;
+		for (Direction dir : DIRECTIONS) {
+			int d = getDistance(headX + dir.getDx(), headY + dir.getDy());
+			if (d < best) {
+				best = d;
+				mask = 1 << dir.ordinal();
+			} else if (d == best && d != UNREACHABLE) {
+				mask |= 1 << dir.ordinal();
+			}
+		}
+		return mask;
+	}
+}
@@ -0,0 +1,383 @@
+package worker;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index of the food on the map. The map is divided into square buckets and every bucket keeps the food
+ * inside it, so the nearest food to a head is found by looking at the buckets around the head, ring by ring,
+ * instead of looking at every food. All food is also kept in one dense list for the cases that need every item.
+ * Food positions are given as cell indices, y*width+x, and kept inside as the y coordinate in the upper and the x
+ * coordinate in the lower 32 bits, which sort the same way and need no division to be taken apart.
+ * On a big map the buckets are kept in a hash map and only the ones with food exist.
+ * @author Burak
+ *
+ */
+public class FoodIndex {
+
+	/**
+	 * Side length of a bucket in cells
+	 */
+	private static final int BUCKET_SIZE = 16;
+
+	/**
+	 * Nearest food is searched by scanning the dense list below this many items, it is faster than the rings
+	 */
+	private static final int LINEAR_SEARCH_LIMIT = 16;
+
+	/**
+	 * Buckets are kept in a hash map instead of arrays over the whole map from this many buckets on
+	 */
+	private static final long SPARSE_BUCKET_COUNT = 1 << 20;
+
+	/**
+	 * Width and height of the map
+	 */
+	private final int width, height;
+	/**
+	 * Whether every cell index fits into an int, then they are taken apart with the faster int division
+	 */
+	private final boolean intCells;
+	/**
+	 * Number of buckets along the width and along the height
+	 */
+	private final int bucketsX, bucketsY;
+	/**
+	 * Slot of every bucket that has food, keyed by bucket row and column; null if every bucket has its own slot,
+	 * the one of its index row by row
+	 */
+	private final LongIntMap slots;
+	/**
+	 * Food positions of the bucket of every slot, null until the bucket gets its first food
+	 */
+	private long[][] bucketFood;
+	/**
+	 * Position in the dense list of every food of every slot, parallel to bucketFood
+	 */
+	private int[][] bucketPositions;
+	/**
+	 * Number of food items in the bucket of every slot
+	 */
+	private int[] bucketCounts;
+	/**
+	 * Unused slots of a sparse index, first freeSlotCount entries are valid
+	 */
+	private int[] freeSlots;
+	/**
+	 * Number of unused slots and number of slots ever used by a sparse index
+	 */
+	private int freeSlotCount, slotCount;
+	/**
+	 * Dense list of all food positions, first count entries are valid
+	 */
+	private long[] food = new long[16];
+	/**
+	 * Number of food items
+	 */
+	private int count;
+
+	/**
+	 * Constructor for an empty index
+	 * @param width width of the map
+	 * @param height height of the map
+	 */
+	public FoodIndex(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.intCells = (long) width * height <= Integer.MAX_VALUE;
+		this.bucketsX = (int) (((long) width + BUCKET_SIZE - 1) / BUCKET_SIZE);
+		this.bucketsY = (int) (((long) height + BUCKET_SIZE - 1) / BUCKET_SIZE);
+		int slotCapacity = 16;
+		if ((long) bucketsX * bucketsY < SPARSE_BUCKET_COUNT) {
+			slotCapacity = bucketsX * bucketsY;
+			this.slots = null;
+		} else {
+			this.slots = new LongIntMap();
+			this.freeSlots = new int[16];
+		}
+		this.bucketFood = new long[slotCapacity][];
+		this.bucketPositions = new int[slotCapacity][];
+		this.bucketCounts = new int[slotCapacity];
+	}
+
+	/**
+	 * Getter for the number of food items
+	 * @return food count
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Getter for a food of the dense list
+	 * @param i index in the list, from 0 to size()-1; the order changes when food is removed
+	 * @return cell index of the food
+	 */
+	public long get(int i) {
+		return cell(food[i]);
+	}
+
+	/**
+	 * Position of a cell as kept in the index
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return y in the upper and x in the lower half
+	 */
+	private static long pack(int x, int y) {
+		return ((long) y << 32) | x;
+	}
+
+	/**
+	 * Cell index of a kept position
+	 * @param position position as given by pack
+	 * @return y*width+x
+	 */
+	private long cell(long position) {
+		return (position >>> 32) * width + (int) position;
+	}
+
+	/**
+	 * Key of the bucket of a position
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return bucket row in the upper and bucket column in the lower half
+	 */
+	private static long bucketKey(int x, int y) {
+		return pack(x / BUCKET_SIZE, y / BUCKET_SIZE);
+	}
+
+	/**
+	 * Slot of a bucket
+	 * @param bx column of the bucket
+	 * @param by row of the bucket
+	 * @return slot of the bucket, -1 if a sparse index has no food in it
+	 */
+	private int slotOf(int bx, int by) {
+		return slots == null ? by * bucketsX + bx : slots.get(pack(bx, by));
+	}
+
+	/**
+	 * Adds a food, the position must not have food already
+	 * @param x x coordinate of the food
+	 * @param y y coordinate of the food
+	 */
+	public void add(int x, int y) {
+		long position = pack(x, y);
+		if (count == food.length) {
+			food = Arrays.copyOf(food, count * 2);
+		}
+		int index = count++;
+		food[index] = position;
+
+		int b = slotOf(x / BUCKET_SIZE, y / BUCKET_SIZE);
+		if (b < 0) {
+			b = allocate(bucketKey(x, y));
+		}
+		int n = bucketCounts[b];
+		if (bucketFood[b] == null) {
+			bucketFood[b] = new long[4];
+			bucketPositions[b] = new int[4];
+		} else if (n == bucketFood[b].length) {
+			bucketFood[b] = Arrays.copyOf(bucketFood[b], n * 2);
+			bucketPositions[b] = Arrays.copyOf(bucketPositions[b], n * 2);
+		}
+		bucketFood[b][n] = position;
+		bucketPositions[b][n] = index;
+		bucketCounts[b] = n + 1;
+	}
+
+	/**
+	 * Gives a bucket of a sparse index its slot
+	 * @param key key of the bucket
+	 * @return the slot
+	 */
+	private int allocate(long key) {
+		int b;
+		if (freeSlotCount > 0) {
+			b = freeSlots[--freeSlotCount];
+		} else {
+			if (slotCount == bucketCounts.length) {
+				bucketFood = Arrays.copyOf(bucketFood, slotCount * 2);
+				bucketPositions = Arrays.copyOf(bucketPositions, slotCount * 2);
+				bucketCounts = Arrays.copyOf(bucketCounts, slotCount * 2);
+			}
+			b = slotCount++;
+		}
+		slots.put(key, b);
+		return b;
+	}
+
+	/**
+	 * Removes a food
+	 * @param x x coordinate of the food
+	 * @param y y coordinate of the food
+	 * @return false if there is no food at the position
+	 */
+	public boolean remove(int x, int y) {
+		long position = pack(x, y);
+		int b = slotOf(x / BUCKET_SIZE, y / BUCKET_SIZE);
+		int k = b < 0 ? -1 : find(b, position);
+		if (k < 0) {
+			return false;
+		}
+		int index = bucketPositions[b][k];
+		// last food of the bucket takes the place of the removed one
+		int last = --bucketCounts[b];
+		bucketFood[b][k] = bucketFood[b][last];
+		bucketPositions[b][k] = bucketPositions[b][last];
+		if (last == 0 && slots != null) {
+			// an empty bucket of a sparse index gives its slot and its arrays back
+			slots.remove(bucketKey(x, y));
+			bucketFood[b] = null;
+			bucketPositions[b] = null;
+			if (freeSlotCount == freeSlots.length) {
+				freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+			}
+			freeSlots[freeSlotCount++] = b;
+		}
+
+		// last food of the dense list takes the place of the removed one, its bucket is told the new position
+		long moved = food[--count];
+		if (index != count) {
+			food[index] = moved;
+			int mb = slotOf((int) moved / BUCKET_SIZE, (int) (moved >>> 32) / BUCKET_SIZE);
+			bucketPositions[mb][find(mb, moved)] = index;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds a food inside a bucket
+	 * @param b slot of the bucket
+	 * @param position position of the food
+	 * @return index inside the bucket, -1 if it is not there
+	 */
+	private int find(int b, long position) {
+		for (int k = 0; k < bucketCounts[b]; k++) {
+			if (bucketFood[b][k] == position) {
+				return k;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the food with the shortest Manhattan distance to a position. Of equally near food the one with the
+	 * smallest cell index is given, so the result does not depend on the order the food was added in.
+	 * The rings of buckets are given up for a scan of every food once they have cost as much as the scan,
+	 * which happens when the food is far away on a big, empty map.
+	 * @param x x coordinate of the position
+	 * @param y y coordinate of the position
+	 * @return cell index of the nearest food, -1 if there is no food
+	 */
+	public long nearest(int x, int y) {
+		if (count == 0) {
+			return -1;
+		}
+		if (count < LINEAR_SEARCH_LIMIT) {
+			return cell(nearestOf(food, count, x, y, -1, Long.MAX_VALUE));
+		}
+		int bx = x / BUCKET_SIZE;
+		int by = y / BUCKET_SIZE;
+		long best = -1;
+		long bestDistance = Long.MAX_VALUE;
+		int maxRing = Math.max(Math.max(bx, bucketsX - 1 - bx), Math.max(by, bucketsY - 1 - by));
+		long visited = 0;
+		for (int ring = 0; ring <= maxRing; ring++) {
+			// every cell of this ring is at least this far away, the nearer rings are done already
+			if (ring > 0 && (long) (ring - 1) * BUCKET_SIZE + 1 > bestDistance) {
+				break;
+			}
+			if (visited > count) {
+				return cell(nearestOf(food, count, x, y, -1, Long.MAX_VALUE));
+			}
+			for (int j = by - ring; j <= by + ring; j++) {
+				if (j < 0 || j >= bucketsY) {
+					continue;
+				}
+				// inner rows of the ring only have their two end buckets
+				int step = (j == by - ring || j == by + ring) ? 1 : Math.max(1, 2 * ring);
+				for (int i = bx - ring; i <= bx + ring; i += step) {
+					if (i < 0 || i >= bucketsX) {
+						continue;
+					}
+					visited++;
+					int b = slotOf(i, j);
+					if (b >= 0 && bucketCounts[b] > 0) {
+						long found = nearestOf(bucketFood[b], bucketCounts[b], x, y, best, bestDistance);
+						if (found != best) {
+							best = found;
+							bestDistance = distance(found, x, y);
+						}
+					}
+				}
+			}
+		}
+		return cell(best);
+	}
+
+	/**
+	 * Finds the nearest of some food positions
+	 * @param list food positions
+	 * @param n number of valid positions in the list
+	 * @param x x coordinate of the position
+	 * @param y y coordinate of the position
+	 * @param best nearest food so far, -1 if none
+	 * @param bestDistance distance of the nearest food so far
+	 * @return the nearest food, best if none of the list is nearer
+	 */
+	private static long nearestOf(long[] list, int n, int x, int y, long best, long bestDistance) {
+		for (int k = 0; k < n; k++) {
+			long d = distance(list[k], x, y);
+			if (d < bestDistance || (d == bestDistance && list[k] < best)) {
+				bestDistance = d;
+				best = list[k];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Manhattan distance between a kept food position and a position
+	 * @param position position as given by pack
+	 * @param x x coordinate of the position
+	 * @param y y coordinate of the position
+	 * @return the distance
+	 */
+	private static long distance(long position, int x, int y) {
+		return Math.abs((long) (int) position - x) + Math.abs((position >>> 32) - y);
+	}
+
+	/**
+	 * X coordinate of a cell index
+	 * @param cell index of the cell
+	 * @return x coordinate
+	 */
+	public int cellX(long cell) {
+		return intCells ? (int) cell % width : (int) (cell % width);
+	}
+
+	/**
+	 * Y coordinate of a cell index
+	 * @param cell index of the cell
+	 * @return y coordinate
+	 */
+	public int cellY(long cell) {
+		return intCells ? (int) cell / width : (int) (cell / width);
+	}
+
+	/**
+	 * Getter for the height of the indexed map
+	 * @return number of cells along the height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Getter for the width of the indexed map
+	 * @return number of cells along the width
+	 */
+	public int getWidth() {
+		return width;
+	}
+}
@@ -0,0 +1,123 @@
+package worker;
+
+/**
+ * Values a headless game is started with, one point of a parameter sweep of a Tournament.
+ * Settings never change, so the same object can be given to games running at the same time.
+ * @author Burak
+ *
+ */
+public final class GameSettings {
+
+	/**
+	 * Width and height of the square grid
+	 */
+	private final int gridSize;
+	/**
+	 * Number and size of the snakes placed at the beginning
+	 */
+	private final int snakeCount, snakeSize;
+	/**
+	 * Size from which the snakes reproduce
+	 */
+	private final int dividingSize;
+	/**
+	 * Number of food kept on the map, as many are spawned in a tick
+	 */
+	private final int foodCount;
+	/**
+	 * Number of ticks a game runs
+	 */
+	private final long ticks;
+	/**
+	 * Whether the snakes go to the food on shortest paths
+	 */
+	private final boolean flowField;
+
+	/**
+	 * Constructor for the settings
+	 * @param gridSize width and height of the grid
+	 * @param snakeCount number of snakes placed at the beginning
+	 * @param snakeSize size of the snakes placed at the beginning
+	 * @param dividingSize size from which the snakes reproduce, at least 2
+	 * @param foodCount number of food kept on the map
+	 * @param ticks number of ticks a game runs
+	 * @param flowField whether the snakes go to the food on shortest paths
+	 * @throws IllegalArgumentException if a value is out of its range
+	 */
+	public GameSettings(int gridSize, int snakeCount, int snakeSize, int dividingSize, int foodCount, long ticks,
+			boolean flowField) {
+		if (gridSize <= 0 || snakeCount < 0 || snakeSize < 1 || dividingSize < 2 || foodCount < 0 || ticks <= 0) {
+			throw new IllegalArgumentException("Invalid game settings " + gridSize + ", " + snakeCount + ", "
+					+ snakeSize + ", " + dividingSize + ", " + foodCount + ", " + ticks);
+		}
+		this.gridSize = gridSize;
+		this.snakeCount = snakeCount;
+		this.snakeSize = snakeSize;
+		this.dividingSize = dividingSize;
+		this.foodCount = foodCount;
+		this.ticks = ticks;
+		this.flowField = flowField;
+	}
+
+	/**
+	 * Getter for the grid size
+	 * @return width and height of the grid
+	 */
+	public int getGridSize() {
+		return gridSize;
+	}
+
+	/**
+	 * Getter for the number of snakes at the beginning
+	 * @return snake count
+	 */
+	public int getSnakeCount() {
+		return snakeCount;
+	}
+
+	/**
+	 * Getter for the size of the snakes at the beginning
+	 * @return number of parts of every first snake
+	 */
+	public int getSnakeSize() {
+		return snakeSize;
+	}
+
+	/**
+	 * Getter for the size from which the snakes reproduce
+	 * @return dividing size
+	 */
+	public int getDividingSize() {
+		return dividingSize;
+	}
+
+	/**
+	 * Getter for the number of food kept on the map
+	 * @return food count
+	 */
+	public int getFoodCount() {
+		return foodCount;
+	}
+
+	/**
+	 * Getter for the length of a game
+	 * @return number of ticks
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Getter for the use of the distance field
+	 * @return true if the snakes go to the food on shortest paths
+	 */
+	public boolean isFlowField() {
+		return flowField;
+	}
+
+	@Override
+	public String toString() {
+		return "grid=" + gridSize + " snakes=" + snakeCount + " size=" + snakeSize + " dividing=" + dividingSize
+				+ " food=" + foodCount + " ticks=" + ticks + " flow=" + flowField;
+	}
+}
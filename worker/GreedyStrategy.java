@@ -0,0 +1,81 @@
+package worker;
+
+import assets.Snake;
+
+/**
+ * The snakes' own way of deciding, the one of Snake.chooseAction: reproduce when big enough, eat food next to
+ * the head, otherwise step towards the nearest food and move randomly if there is no such step.
+ * Big populations are decided in parallel, every thread with its own reused information and random source.
+ * The size from which snakes reproduce can be changed, so that other sizes can be tried without changing Snake.
+ * @author Burak
+ *
+ */
+public class GreedyStrategy implements DecisionStrategy {
+
+	/**
+	 * Information object that is reused for every snake, one for each deciding thread
+	 */
+	private final ThreadLocal<LocalInformation> information = ThreadLocal.withInitial(() -> new LocalInformation(0, 0));
+	/**
+	 * Random source that steps the stream of the deciding snake, one for each deciding thread
+	 */
+	private final ThreadLocal<RandomSource> random = ThreadLocal.withInitial(() -> new RandomSource(0));
+	/**
+	 * Size from which the snakes reproduce
+	 */
+	private final int dividingSize;
+
+	/**
+	 * Constructor for the strategy of Snake, snakes reproduce at Snake.DIVIDING_SIZE
+	 */
+	public GreedyStrategy() {
+		this(Snake.DIVIDING_SIZE);
+	}
+
+	/**
+	 * Constructor for the strategy with another reproduction size
+	 * @param dividingSize size from which the snakes reproduce
+	 * @throws IllegalArgumentException if the size is less than 2, smaller snakes cannot be divided
+	 */
+	public GreedyStrategy(int dividingSize) {
+		if (dividingSize < 2) {
+			throw new IllegalArgumentException("Invalid dividing size " + dividingSize);
+		}
+		this.dividingSize = dividingSize;
+	}
+
+	/**
+	 * Getter for the size from which the snakes reproduce
+	 * @return dividing size
+	 */
+	public int getDividingSize() {
+		return dividingSize;
+	}
+
+	@Override
+	public void decide(SnakeSensors sensors, ActionBuffer actions) {
+		if (sensors.getCount() < RangeTask.PARALLEL_THRESHOLD) {
+			decide(sensors, actions, 0, sensors.getCount());
+		} else {
+			RangeTask.run(sensors.getCount(), (from, to) -> decide(sensors, actions, from, to));
+		}
+	}
+
+	/**
+	 * Decides a range of snakes
+	 * @param sensors surroundings of the snakes
+	 * @param actions buffer to write into
+	 * @param from index of the first snake
+	 * @param to index after the last snake
+	 */
+	private void decide(SnakeSensors sensors, ActionBuffer actions, int from, int to) {
+		LocalInformation information = this.information.get();
+		RandomSource random = this.random.get();
+		for (int i = from; i < to; i++) {
+			sensors.loadRandom(i, random);
+			information.load(sensors, i, random);
+			actions.set(i, Snake.chooseAction(sensors.getSize(i), dividingSize, information, random));
+			sensors.storeRandom(i, random);
+		}
+	}
+}
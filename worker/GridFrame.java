@@ -0,0 +1,100 @@
+package worker;
+
+import assets.Food;
+import assets.Snake;
+import game.Frame;
+import ui.DensityMap;
+import ui.GridPanel;
+import ui.Viewport;
+
+/**
+ * Frame of the snake game, an unchangeable copy of the visible part of the map taken between two ticks.
+ * Drawing it over the previous frame of the same viewport only draws the cells whose state differs.
+ * A zoomed out frame keeps the density of the cells behind every pixel instead of the cells.
+ * @author Burak
+ *
+ */
+public class GridFrame implements Frame {
+
+	/**
+	 * Viewport the frame was taken for
+	 */
+	private final Viewport viewport;
+	/**
+	 * Copy of the visible cell states, row by row, never changed after construction; null if zoomed out
+	 */
+	private final byte[] cells;
+	/**
+	 * Density of the visible cells, never changed after construction; null if zoomed in
+	 */
+	private final DensityMap density;
+
+	/**
+	 * Constructor for the frame, copies the current states of the visible cells of the map
+	 * @param map map to copy
+	 * @param viewport part of the map to copy
+	 */
+	public GridFrame(WorldGrid map, Viewport viewport) {
+		this.viewport = viewport;
+		int x = viewport.getFirstX(), y = viewport.getFirstY();
+		int width = viewport.getVisibleWidth(), height = viewport.getVisibleHeight();
+		if (viewport.isDensity()) {
+			this.density = new DensityMap(viewport);
+			map.visitBlocks(x, y, x + width, y + height, density::add);
+			this.cells = null;
+		} else {
+			this.cells = map.copyCells(x, y, width, height);
+			this.density = null;
+		}
+	}
+
+	@Override
+	public boolean draw(GridPanel panel, Frame previous) {
+		// the view has moved since the frame was taken, the next frame is taken for the new one
+		if (!viewport.equals(panel.getViewport())) {
+			return false;
+		}
+		if (density != null) {
+			panel.drawDensity(density);
+			return true;
+		}
+		GridFrame old = null;
+		if (previous instanceof GridFrame && viewport.equals(((GridFrame) previous).viewport)) {
+			old = (GridFrame) previous;
+		}
+		int width = viewport.getVisibleWidth();
+		if (old == null) {
+			panel.drawBackground();
+			for (int i = 0; i < cells.length; i++) {
+				drawCell(panel, i, width);
+			}
+			panel.repaint();
+			return true;
+		}
+		for (int i = 0; i < cells.length; i++) {
+			if (cells[i] != old.cells[i]) {
+				int x = viewport.getFirstX() + i % width, y = viewport.getFirstY() + i / width;
+				panel.clearCell(x, y);
+				drawCell(panel, i, width);
+				panel.repaintCell(x, y);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Draws a single cell on its cleared square
+	 * @param panel panel to draw on
+	 * @param i index of the cell in the copy
+	 * @param width width of the copy
+	 */
+	private void drawCell(GridPanel panel, int i, int width) {
+		byte state = cells[i];
+		int x = viewport.getFirstX() + i % width, y = viewport.getFirstY() + i / width;
+		if (state == WorldGrid.HEAD || state == WorldGrid.BODY) {
+			Snake.drawPart(panel, x, y, state == WorldGrid.HEAD);
+		} else if (state == WorldGrid.FOOD) {
+			Food.draw(panel, x, y);
+		}
+	}
+}
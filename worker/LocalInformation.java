@@ -1,150 +1,332 @@
-package worker;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-
-import assets.Food;
-import assets.Node;
-import assets.Node.Value;
-import game.Direction;
-
-/**
- * Class to create and keep information about a snake in particular its head
- * @author Burak
- *
- */
-public class LocalInformation {
-
-	/**
-	 * Width of the game panel
-	 */
-	private int gridWidth;
-	/**
-	 * Height of the game panel
-	 */
-	private int gridHeight;
-	/**
-	 * the current food
-	 */
-	private Food food;
-	/**
-	 * Node of the current node, the information is created about it
-	 */
-	private Node head;
-	/**
-	 * HashMap To keep nodes around the head node of the snake
-	 */
-	private HashMap<Direction, Node> nodes;
-	/**
-	 * List to keep free directions to move
-	 */
-	private List<Direction> freeDirections;
-
-	/**
-	 * Constructor for the local information object to help snake arrangements
-	 * @param gridWidth Width of the game
-	 * @param gridHeight Height of the game
-	 * @param nodes HashMap of the nodes around head node
-	 * @param freeDirections Directions that is free to move
-	 * @param food Parameter for the food node
-	 * @param head Parameter for the head node
-	 */
-	LocalInformation(int gridWidth, int gridHeight,
-			HashMap<Direction, Node> nodes, List<Direction> freeDirections,Food food, Node head) {
-		this.gridWidth = gridWidth;
-		this.gridHeight = gridHeight;
-		this.nodes = nodes;
-		this.freeDirections = freeDirections;
-		this.food = food;
-		this.head = head;
-	}
-
-	/**
-	 * Getter for the grid width
-	 * @return Game width
-	 */
-	public int getGridWidth() {
-		return gridWidth;
-	}
-
-	/**
-	 * Getter for the height of the grid world.
-	 * Can be used to assess the boundaries of the world.
-	 * @return number of grid squares along the height
-	 */
-	public int getGridHeight() {
-		return gridHeight;
-	}
-
-	/**
-	 * Returns the neighbor Node one square up
-	 * @return node or null if no node exists
-	 */
-	public Node getNodeUp() {
-		return nodes.get(Direction.UP);
-	}
-
-	/**
-	 * Returns the neighbor Node one square down
-	 * @return node or null if no node exists
-	 */
-	public Node getNodeDown() {
-		return nodes.get(Direction.DOWN);
-	}
-
-	/**
-	 * Returns the neighbor Node one square left
-	 * @return node or null if no node exists
-	 */
-	public Node getNodeLeft() {
-		return nodes.get(Direction.LEFT);
-	}
-
-	/**
-	 * Returns the neighbor node one square right
-	 * @return node or null if no node exists
-	 */
-	public Node getNodeRight() {
-		return nodes.get(Direction.RIGHT);
-	}
-
-	/**
-	 * Returns the list of free directions around the current position.
-	 * The list does not contain directions out of bounds or containing a node.
-	 * Can be used to determine the directions available to move or reproduce.
-	 * @return directions that is free to move
-	 */
-	public List<Direction> getFreeDirections() {
-		return freeDirections;
-	}
-
-	/**
-	 * Utility function to get a randomly selected direction among multiple directions.
-	 * The selection is uniform random: All directions in the list have an equal chance to be chosen.
-	 * @param possibleDirections list of possible directions
-	 * @return direction randomly selected from the list of possible directions
-	 */
-	public static Direction getRandomDirection(List<Direction> possibleDirections) {
-		if (possibleDirections.isEmpty()) {
-			return null;
-		}
-		int randomIndex = (int)(Math.random() * possibleDirections.size());
-		return possibleDirections.get(randomIndex);
-	}
-
-	/**
-	 * Method to creation the right, free direction for the snake
-	 * @return Direction to get food, to try
-	 */
-	public Direction getNextDirection() {
-		Node food = this.food.getFood();
-		ArrayList<Direction> nextDir = new ArrayList<Direction>();
-		if(food.getX() > head.getX()) nextDir.add(Direction.RIGHT);
-		if(food.getX() < head.getX()) nextDir.add(Direction.LEFT);
-		if(food.getY() > head.getY()) nextDir.add(Direction.DOWN);
-		if(food.getY() < head.getY()) nextDir.add(Direction.UP);
-		freeDirections.retainAll(nextDir);
-		return getRandomDirection(freeDirections);
-	}
-}
+package worker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import assets.Node;
+import game.Direction;
+
+/**
+ * Class to create and keep information about a snake in particular its head.
+ * One object is reused for every snake: the simulator loads the surroundings of the next head into it,
+ * so sensing does not create any objects. Information about a snake is valid until the next load.
+ * Neighbors are kept as bitmasks, bit i of a mask belongs to the direction with ordinal i.
+ * @author Burak
+ *
+ */
+public class LocalInformation {
+
+	/**
+	 * State of a neighbor that is outside of the grid, other states are the ones of WorldGrid
+	 */
+	public static final int OUTSIDE = 4;
+
+	/**
+	 * Directions in ordinal order, values() creates a new array at every call
+	 */
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	/**
+	 * Node that is given for the neighbors outside of the grid
+	 */
+	private static final Node OUTSIDE_NODE = new Node("outsideGrid");
+
+	/**
+	 * Width of the game panel
+	 */
+	private int gridWidth;
+	/**
+	 * Height of the game panel
+	 */
+	private int gridHeight;
+	/**
+	 * Food of the game
+	 */
+	private FoodIndex foods;
+	/**
+	 * Coordinates of the head of the snake, the information is created about it
+	 */
+	private int headX, headY;
+	/**
+	 * States of the four neighbors of the head, 4 bits for each direction
+	 */
+	private int neighbors;
+	/**
+	 * Bitmask of the directions that are free to move
+	 */
+	private int freeMask;
+	/**
+	 * Bitmask of the directions that have food
+	 */
+	private int foodMask;
+	/**
+	 * Shared distance field to the food, null if the game does not keep one
+	 */
+	private FlowField flowField;
+	/**
+	 * Random numbers of the snake the information is about
+	 */
+	private RandomSource random;
+	/**
+	 * Reused nodes given by the neighbor getters, one for each direction
+	 */
+	private final Node[] nodes = new Node[DIRECTIONS.length];
+	/**
+	 * Reused list given by getFreeDirections
+	 */
+	private final List<Direction> freeDirections = new ArrayList<Direction>(DIRECTIONS.length);
+
+	/**
+	 * Constructor for the local information object to help snake arrangements
+	 * @param gridWidth Width of the game
+	 * @param gridHeight Height of the game
+	 */
+	LocalInformation(int gridWidth, int gridHeight) {
+		this.gridWidth = gridWidth;
+		this.gridHeight = gridHeight;
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = new Node(null, false, 0, 0);
+		}
+	}
+
+	/**
+	 * Loads the surroundings of a head from the map, previous information is overwritten
+	 * @param map map of the game
+	 * @param foods food of the game
+	 * @param flowField distance field of the current tick, null if there is none
+	 * @param headX x coordinate of the head
+	 * @param headY y coordinate of the head
+	 * @param random random numbers of the snake, used to break ties between directions
+	 */
+	void load(WorldGrid map, FoodIndex foods, FlowField flowField, int headX, int headY, RandomSource random) {
+		this.foods = foods;
+		this.random = random;
+		this.flowField = flowField;
+		this.headX = headX;
+		this.headY = headY;
+		int up = state(map, headX, headY - 1);
+		int down = state(map, headX, headY + 1);
+		int left = state(map, headX - 1, headY);
+		int right = state(map, headX + 1, headY);
+		neighbors = up << (Direction.UP.ordinal() * 4) | down << (Direction.DOWN.ordinal() * 4)
+				| left << (Direction.LEFT.ordinal() * 4) | right << (Direction.RIGHT.ordinal() * 4);
+		freeMask = mask(up, WorldGrid.EMPTY, Direction.UP) | mask(down, WorldGrid.EMPTY, Direction.DOWN)
+				| mask(left, WorldGrid.EMPTY, Direction.LEFT) | mask(right, WorldGrid.EMPTY, Direction.RIGHT);
+		foodMask = mask(up, WorldGrid.FOOD, Direction.UP) | mask(down, WorldGrid.FOOD, Direction.DOWN)
+				| mask(left, WorldGrid.FOOD, Direction.LEFT) | mask(right, WorldGrid.FOOD, Direction.RIGHT);
+	}
+
+	/**
+	 * Loads the surroundings of a head sensed before, the map is not read again
+	 * @param sensors surroundings of the snakes of the tick
+	 * @param snake index of the snake
+	 * @param random random numbers of the snake, used to break ties between directions
+	 */
+	void load(SnakeSensors sensors, int snake, RandomSource random) {
+		this.gridWidth = sensors.getMap().getWidth();
+		this.gridHeight = sensors.getMap().getHeight();
+		this.foods = sensors.getFoods();
+		this.random = random;
+		this.flowField = sensors.getFlowField();
+		this.headX = sensors.getHeadX(snake);
+		this.headY = sensors.getHeadY(snake);
+		neighbors = sensors.getNeighbors(snake);
+		freeMask = SnakeSensors.mask(neighbors, WorldGrid.EMPTY);
+		foodMask = SnakeSensors.mask(neighbors, WorldGrid.FOOD);
+	}
+
+	/**
+	 * State of a cell of the map, or OUTSIDE
+	 * @param map map of the game
+	 * @param x x coordinate of the cell
+	 * @param y y coordinate of the cell
+	 * @return state of the cell
+	 */
+	private static int state(WorldGrid map, int x, int y) {
+		return map.isInside(x, y) ? map.get(x, y) : OUTSIDE;
+	}
+
+	/**
+	 * Bit of a direction if the state is the expected one
+	 * @param state state of the neighbor
+	 * @param expected expected state
+	 * @param dir direction of the neighbor
+	 * @return the bit of the direction or zero
+	 */
+	private static int mask(int state, int expected, Direction dir) {
+		return state == expected ? 1 << dir.ordinal() : 0;
+	}
+
+	/**
+	 * Getter for the grid width
+	 * @return Game width
+	 */
+	public int getGridWidth() {
+		return gridWidth;
+	}
+
+	/**
+	 * Getter for the height of the grid world.
+	 * Can be used to assess the boundaries of the world.
+	 * @return number of grid squares along the height
+	 */
+	public int getGridHeight() {
+		return gridHeight;
+	}
+
+	/**
+	 * Returns the state of the neighbor at the given direction
+	 * @param dir direction of the neighbor
+	 * @return one of the WorldGrid states or OUTSIDE
+	 */
+	public int getNeighbor(Direction dir) {
+		return (neighbors >>> (dir.ordinal() * 4)) & 0xF;
+	}
+
+	/**
+	 * Returns the bitmask of free directions around the current position
+	 * @return bit i is set if the direction with ordinal i is free to move
+	 */
+	public int getFreeMask() {
+		return freeMask;
+	}
+
+	/**
+	 * Returns the bitmask of directions that have food around the current position
+	 * @return bit i is set if the direction with ordinal i has food
+	 */
+	public int getFoodMask() {
+		return foodMask;
+	}
+
+	/**
+	 * Returns the neighbor Node one square up
+	 * @return node, it is reused for the next snake
+	 */
+	public Node getNodeUp() {
+		return node(Direction.UP, headX, headY - 1);
+	}
+
+	/**
+	 * Returns the neighbor Node one square down
+	 * @return node, it is reused for the next snake
+	 */
+	public Node getNodeDown() {
+		return node(Direction.DOWN, headX, headY + 1);
+	}
+
+	/**
+	 * Returns the neighbor Node one square left
+	 * @return node, it is reused for the next snake
+	 */
+	public Node getNodeLeft() {
+		return node(Direction.LEFT, headX - 1, headY);
+	}
+
+	/**
+	 * Returns the neighbor node one square right
+	 * @return node, it is reused for the next snake
+	 */
+	public Node getNodeRight() {
+		return node(Direction.RIGHT, headX + 1, headY);
+	}
+
+	/**
+	 * Fills the reused node of a direction with the state of the neighbor
+	 * @param dir direction of the neighbor
+	 * @param x x coordinate of the neighbor
+	 * @param y y coordinate of the neighbor
+	 * @return node of the neighbor
+	 */
+	private Node node(Direction dir, int x, int y) {
+		int state = getNeighbor(dir);
+		if (state == OUTSIDE) {
+			return OUTSIDE_NODE;
+		}
+		Node n = nodes[dir.ordinal()];
+		n.setValue(CellGrid.toValue((byte) state));
+		n.setHead(state == WorldGrid.HEAD);
+		n.setX(x);
+		n.setY(y);
+		return n;
+	}
+
+	/**
+	 * Returns the list of free directions around the current position.
+	 * The list does not contain directions out of bounds or containing a node.
+	 * Can be used to determine the directions available to move or reproduce.
+	 * @return directions that is free to move, the list is reused for the next snake
+	 */
+	public List<Direction> getFreeDirections() {
+		freeDirections.clear();
+		for (Direction dir : DIRECTIONS) {
+			if ((freeMask & (1 << dir.ordinal())) != 0) freeDirections.add(dir);
+		}
+		return freeDirections;
+	}
+
+	/**
+	 * Utility function to get a randomly selected direction among multiple directions.
+	 * The selection is uniform random: All directions in the list have an equal chance to be chosen.
+	 * @param possibleDirections list of possible directions
+	 * @param random random numbers to select with
+	 * @return direction randomly selected from the list of possible directions
+	 */
+	public static Direction getRandomDirection(List<Direction> possibleDirections, RandomSource random) {
+		if (possibleDirections.isEmpty()) {
+			return null;
+		}
+		int randomIndex = random.nextInt(possibleDirections.size());
+		return possibleDirections.get(randomIndex);
+	}
+
+	/**
+	 * Utility function to get a randomly selected direction among the directions of a bitmask.
+	 * The selection is uniform random like the list version, but nothing is created.
+	 * @param directions bitmask of possible directions
+	 * @param random random numbers to select with
+	 * @return direction randomly selected from the bitmask, null if it is empty
+	 */
+	public static Direction getRandomDirection(int directions, RandomSource random) {
+		int count = Integer.bitCount(directions);
+		if (count == 0) {
+			return null;
+		}
+		// skips the lowest set bits until the randomly chosen one
+		for (int skip = random.nextInt(count); skip > 0; skip--) {
+			directions &= directions - 1;
+		}
+		return DIRECTIONS[Integer.numberOfTrailingZeros(directions)];
+	}
+
+	/**
+	 * Returns a first step of a shortest path to the nearest food, by using the shared distance field.
+	 * If there are several such steps one of them is chosen randomly.
+	 * @return Direction to move, null if there is no distance field or no food can be reached
+	 */
+	public Direction getFlowDirection() {
+		if (flowField == null) {
+			return null;
+		}
+		return getRandomDirection(flowField.getBestDirections(headX, headY) & freeMask, random);
+	}
+
+	/**
+	 * Method to creation the right, free direction for the snake, towards the nearest food
+	 * @return Direction to get food, to try, null if there is no such direction or no food
+	 */
+	public Direction getNextDirection() {
+		long food = foods.nearest(headX, headY);
+		if (food < 0) {
+			return null;
+		}
+		int foodX = foods.cellX(food);
+		int foodY = foods.cellY(food);
+		int nextDir = 0;
+		if(foodX > headX) nextDir |= 1 << Direction.RIGHT.ordinal();
+		if(foodX < headX) nextDir |= 1 << Direction.LEFT.ordinal();
+		if(foodY > headY) nextDir |= 1 << Direction.DOWN.ordinal();
+		if(foodY < headY) nextDir |= 1 << Direction.UP.ordinal();
+		return getRandomDirection(freeMask & nextDir, random);
+	}
+}
@@ -0,0 +1,163 @@
+package worker;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from long keys to int values without boxing, used to find the chunks of a sparse world and the
+ * buckets of a sparse food index. Keys are kept in one open addressing table with linear probing, a removed key
+ * pulls the following keys of its probe run back, so no deleted markers are left behind.
+ * @author Burak
+ *
+ */
+final class LongIntMap {
+
+	/**
+	 * Key of the unused slots, it cannot be put into the map
+	 */
+	private static final long FREE = Long.MIN_VALUE;
+
+	/**
+	 * Keys of the slots, FREE for the unused ones
+	 */
+	private long[] keys;
+	/**
+	 * Values of the slots, parallel to keys
+	 */
+	private int[] values;
+	/**
+	 * Number of keys in the map
+	 */
+	private int size;
+	/**
+	 * Shift that turns a 64 bit hash into a slot, 64 minus the log of the table length
+	 */
+	private int shift;
+
+	/**
+	 * Constructor for an empty map
+	 */
+	LongIntMap() {
+		allocate(16);
+	}
+
+	/**
+	 * Getter for the number of keys
+	 * @return key count
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Getter for the value of a key
+	 * @param key the key
+	 * @return value of the key, -1 if the key is not in the map
+	 */
+	int get(long key) {
+		int mask = keys.length - 1;
+		for (int i = slot(key);; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return values[i];
+			}
+			if (keys[i] == FREE) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Puts a key into the map or changes its value
+	 * @param key the key, anything but Long.MIN_VALUE
+	 * @param value value of the key
+	 */
+	void put(long key, int value) {
+		// table is kept at most half full so that probe runs stay short
+		if (size * 2 >= keys.length) {
+			long[] oldKeys = keys;
+			int[] oldValues = values;
+			allocate(keys.length * 2);
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != FREE) {
+					insert(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+		insert(key, value);
+	}
+
+	/**
+	 * Removes a key from the map
+	 * @param key the key
+	 * @return value the key had, -1 if it was not in the map
+	 */
+	int remove(long key) {
+		int mask = keys.length - 1;
+		int i = slot(key);
+		while (keys[i] != key) {
+			if (keys[i] == FREE) {
+				return -1;
+			}
+			i = (i + 1) & mask;
+		}
+		int value = values[i];
+		// later keys of the run that could sit at the emptied slot are moved there
+		for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+			int home = slot(keys[j]);
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		keys[i] = FREE;
+		size--;
+		return value;
+	}
+
+	/**
+	 * Removes every key, the table is kept
+	 */
+	void clear() {
+		Arrays.fill(keys, FREE);
+		size = 0;
+	}
+
+	/**
+	 * Puts a key into the table that is known to have room for it
+	 * @param key the key
+	 * @param value value of the key
+	 */
+	private void insert(long key, int value) {
+		int mask = keys.length - 1;
+		int i = slot(key);
+		while (keys[i] != FREE && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		if (keys[i] == FREE) {
+			size++;
+		}
+		keys[i] = key;
+		values[i] = value;
+	}
+
+	/**
+	 * Creates an empty table
+	 * @param length number of slots, a power of two
+	 */
+	private void allocate(int length) {
+		keys = new long[length];
+		values = new int[length];
+		Arrays.fill(keys, FREE);
+		shift = 64 - Integer.numberOfTrailingZeros(length);
+		size = 0;
+	}
+
+	/**
+	 * First slot to look for a key in, neighbor keys are spread over the table by a multiplicative hash
+	 * @param key the key
+	 * @return index of the slot
+	 */
+	private int slot(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+}
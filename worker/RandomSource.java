@@ -0,0 +1,153 @@
+package worker;
+
+/**
+ * Seedable and splittable random number generator, the SplitMix64 algorithm of java.util.SplittableRandom.
+ * A game owns one source and gives every snake a stream split from it, so a snake never shares its generator
+ * with another thread and a run is the same for the same seed, even when snakes decide in parallel.
+ * Unlike SplittableRandom, the state can be read and set again, so that a saved game continues with the same
+ * numbers.
+ * @author Burak
+ *
+ */
+public final class RandomSource {
+
+	/**
+	 * Gamma of the sources created from a seed, the odd integer closest to 2^64 divided by the golden ratio
+	 */
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Current state, increased by gamma at every number
+	 */
+	private long seed;
+	/**
+	 * Odd increment of the state, streams with different gammas do not overlap
+	 */
+	private long gamma;
+
+	/**
+	 * Constructor for a source from a seed, the same seed always gives the same numbers
+	 * @param seed the seed
+	 */
+	public RandomSource(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	/**
+	 * Constructor for a source with a known state
+	 * @param seed the state
+	 * @param gamma the increment, it must be odd
+	 * @throws IllegalArgumentException if the increment is even
+	 */
+	public RandomSource(long seed, long gamma) {
+		if ((gamma & 1) == 0) {
+			throw new IllegalArgumentException("Gamma must be odd");
+		}
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	/**
+	 * Creates a new source whose numbers are independent of the numbers of this one.
+	 * This source moves forward by two numbers.
+	 * @return the new source
+	 */
+	public RandomSource split() {
+		return new RandomSource(nextLong(), mixGamma(nextSeed()));
+	}
+
+	/**
+	 * Gives a uniformly random long
+	 * @return the number
+	 */
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+
+	/**
+	 * Gives a uniformly random int between zero, inclusive, and the bound, exclusive
+	 * @param bound upper bound, it must be positive
+	 * @return the number
+	 */
+	public int nextInt(int bound) {
+		// upper 32 bits are multiplied by the bound, the bias is below 2^-32 and it needs no division
+		return (int) (((nextLong() >>> 32) * bound) >>> 32);
+	}
+
+	/**
+	 * Gives a uniformly random long between zero, inclusive, and the bound, exclusive
+	 * @param bound upper bound, it must be positive
+	 * @return the number
+	 */
+	public long nextLong(long bound) {
+		// 63 random bits modulo the bound, the bias is below bound/2^63
+		return (nextLong() >>> 1) % bound;
+	}
+
+	/**
+	 * Gives a uniformly random double between zero, inclusive, and one, exclusive
+	 * @return the number
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Getter for the state
+	 * @return the state, a source constructed with it and getGamma() continues with the same numbers
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Getter for the increment of the state
+	 * @return the gamma
+	 */
+	public long getGamma() {
+		return gamma;
+	}
+
+	/**
+	 * Makes this source continue another stream, so that one object can step the streams of many snakes that
+	 * are kept as numbers
+	 * @param seed the state
+	 * @param gamma the increment, it must be odd
+	 */
+	void setState(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	/**
+	 * Moves the state forward
+	 * @return the new state
+	 */
+	private long nextSeed() {
+		return seed += gamma;
+	}
+
+	/**
+	 * Mixes the bits of a state into a random number, the finalizer of MurmurHash3 as in SplittableRandom
+	 * @param z state to mix
+	 * @return the number
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Makes a gamma for a split source, odd and with enough bit changes between neighbors
+	 * @param z state to mix
+	 * @return the gamma
+	 */
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+	}
+}
@@ -0,0 +1,84 @@
+package worker;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Task that runs some work over a range of snakes, big ranges are split in halves and run in parallel. Called from a
+ * worker of a ForkJoinPool, such as a game of a Tournament, the halves run in that pool, so its parallelism bounds
+ * the threads; called from any other thread, they run in the common pool.
+ * Sensing and deciding both go over the whole population with it.
+ * @author Burak
+ *
+ */
+final class RangeTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Snake count from which the work is done in parallel, smaller populations are not worth the threads
+	 */
+	static final int PARALLEL_THRESHOLD = 2048;
+	/**
+	 * Number of snakes handled by one parallel task
+	 */
+	private static final int CHUNK = 512;
+
+	/**
+	 * Work done over a range of snakes
+	 */
+	@FunctionalInterface
+	interface Body {
+
+		/**
+		 * Does the work for a range of snakes, ranges given at the same time do not overlap
+		 * @param from index of the first snake
+		 * @param to index after the last snake
+		 */
+		void run(int from, int to);
+	}
+
+	/**
+	 * Work to do
+	 */
+	private final Body body;
+	/**
+	 * Range of the snakes, from inclusive to exclusive
+	 */
+	private final int from, to;
+
+	/**
+	 * Constructor for the task
+	 * @param body work to do
+	 * @param from index of the first snake
+	 * @param to index after the last snake
+	 */
+	private RangeTask(Body body, int from, int to) {
+		this.body = body;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Runs work over snakes 0 to count-1, in parallel if there are at least PARALLEL_THRESHOLD of them.
+	 * Callers that run every tick check the threshold first, so that small populations do not create the body.
+	 * @param count number of snakes
+	 * @param body work to do
+	 */
+	static void run(int count, Body body) {
+		if (count >= PARALLEL_THRESHOLD) {
+			new RangeTask(body, 0, count).invoke();
+		} else {
+			body.run(0, count);
+		}
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from <= CHUNK) {
+			body.run(from, to);
+		} else {
+			int middle = (from + to) >>> 1;
+			invokeAll(new RangeTask(body, from, middle), new RangeTask(body, middle, to));
+		}
+	}
+}
@@ -0,0 +1,335 @@
+package worker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import assets.Food;
+import assets.Snake;
+import game.Direction;
+
+/**
+ * Binary format of the replay files, shared by the recorder and the player.
+ * A file starts with a header (magic, version, grid width and height as 4 byte integers), followed by records.
+ * Every record is a type byte, the length of its body as a varint and the body. A keyframe record keeps the whole
+ * state of the game, a tick record keeps only what cannot be computed again: the actions chosen in the tick and
+ * the cells where food spawned. When the recording is closed an index record with the position of every keyframe
+ * is written, followed by a footer with the position of the index.
+ * Numbers are unsigned varints, 7 bits per byte, and signed ones are zigzag encoded first, so small values of
+ * both signs take a single byte. Keyframes are also the body of the checkpoint files.
+ * @author Burak
+ *
+ */
+final class ReplayFormat {
+
+	/**
+	 * First 4 bytes of a replay file, "SNKR"
+	 */
+	static final int MAGIC = 0x534E4B52;
+	/**
+	 * Last 4 bytes of a closed replay file, "SNKI"
+	 */
+	static final int INDEX_MAGIC = 0x534E4B49;
+	/**
+	 * Version of the format
+	 */
+	static final int VERSION = 1;
+	/**
+	 * Size of the header: magic, version, width and height
+	 */
+	static final int HEADER_SIZE = 16;
+	/**
+	 * Size of the footer: position of the index record and the index magic
+	 */
+	static final int FOOTER_SIZE = 12;
+	/**
+	 * Record types
+	 */
+	static final byte KEYFRAME = 1, TICK = 2, INDEX = 3;
+
+	/**
+	 * Directions in ordinal order
+	 */
+	private static final Direction[] DIRECTIONS = Direction.values();
+	/**
+	 * Only static members
+	 */
+	private ReplayFormat() {
+	}
+
+	/**
+	 * Growable byte array that a record body is written into before the record is written to the file
+	 * @author Burak
+	 *
+	 */
+	static final class Buffer {
+
+		/**
+		 * Written bytes, first size entries are valid
+		 */
+		private byte[] bytes = new byte[256];
+		/**
+		 * Number of written bytes
+		 */
+		private int size;
+
+		/**
+		 * Getter for the number of written bytes
+		 * @return byte count
+		 */
+		int size() {
+			return size;
+		}
+
+		/**
+		 * Forgets the written bytes, the array is kept
+		 */
+		void clear() {
+			size = 0;
+		}
+
+		/**
+		 * Writes a byte
+		 * @param b byte to write, only the lowest 8 bits are used
+		 */
+		void writeByte(int b) {
+			if (size == bytes.length) {
+				bytes = Arrays.copyOf(bytes, size * 2);
+			}
+			bytes[size++] = (byte) b;
+		}
+
+		/**
+		 * Writes some bytes
+		 * @param b array of the bytes
+		 * @param length number of bytes to write from the beginning of the array
+		 */
+		void writeBytes(byte[] b, int length) {
+			if (size + length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(size + length, bytes.length * 2));
+			}
+			System.arraycopy(b, 0, bytes, size, length);
+			size += length;
+		}
+
+		/**
+		 * Writes a number as 8 bytes, highest byte first like ByteBuffer
+		 * @param value number to write
+		 */
+		void writeLong(long value) {
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				writeByte((int) (value >>> shift));
+			}
+		}
+
+		/**
+		 * Gives the written bytes without copying them
+		 * @return buffer over the written bytes, valid until the next write
+		 */
+		ByteBuffer asByteBuffer() {
+			return ByteBuffer.wrap(bytes, 0, size);
+		}
+
+		/**
+		 * Copies the bytes into a new array as the body of a record, the way writeRecord writes them
+		 * @param type type of the record
+		 * @return the whole record, header included
+		 */
+		byte[] toRecord(byte type) {
+			int headerSize = 2;
+			for (long length = size; (length & ~0x7FL) != 0; length >>>= 7) {
+				headerSize++;
+			}
+			byte[] record = new byte[headerSize + size];
+			record[0] = type;
+			int i = 1;
+			long length = size;
+			while ((length & ~0x7FL) != 0) {
+				record[i++] = (byte) ((length & 0x7F) | 0x80);
+				length >>>= 7;
+			}
+			record[i++] = (byte) length;
+			System.arraycopy(bytes, 0, record, i, size);
+			return record;
+		}
+
+		/**
+		 * Writes a non-negative number in 7 bit groups, lowest group first
+		 * @param value number to write
+		 */
+		void writeVarint(long value) {
+			while ((value & ~0x7FL) != 0) {
+				writeByte((int) (value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			writeByte((int) value);
+		}
+
+		/**
+		 * Writes a number of any sign, zigzag encoded so that small negative numbers are short too
+		 * @param value number to write
+		 */
+		void writeZigzag(long value) {
+			writeVarint((value << 1) ^ (value >> 63));
+		}
+
+		/**
+		 * Writes the bytes as the body of a record
+		 * @param out stream to write into
+		 * @param type type of the record
+		 * @return number of bytes written, header included
+		 * @throws IOException if the stream cannot be written
+		 */
+		long writeRecord(OutputStream out, byte type) throws IOException {
+			out.write(type);
+			int headerSize = 1;
+			long length = size;
+			while ((length & ~0x7FL) != 0) {
+				out.write((int) (length & 0x7F) | 0x80);
+				length >>>= 7;
+				headerSize++;
+			}
+			out.write((int) length);
+			headerSize++;
+			out.write(bytes, 0, size);
+			return headerSize + size;
+		}
+	}
+
+	/**
+	 * Reads a number written by writeVarint
+	 * @param in buffer to read from
+	 * @return the number
+	 */
+	static long readVarint(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			int b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+
+	/**
+	 * Reads a number written by writeZigzag
+	 * @param in buffer to read from
+	 * @return the number
+	 */
+	static long readZigzag(ByteBuffer in) {
+		long value = readVarint(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Checks an action code read from a file, codes are the ones of Action.getCode()
+	 * @param code code read
+	 * @return the code
+	 * @throws IllegalStateException if the code is not a valid action
+	 */
+	static byte checkAction(int code) {
+		if (code >= Action.CODE_COUNT) {
+			throw new IllegalStateException("Invalid action code " + code);
+		}
+		return (byte) code;
+	}
+
+	/**
+	 * Writes the whole state of a game: the tick, the food supply, every food in index order and every snake
+	 * in list order. A snake is its head followed by 2 bits for each other part, the direction from the part
+	 * before it, since the parts of a snake are always neighbors.
+	 * @param game game to write
+	 * @param out buffer to write into
+	 * @throws IllegalStateException if a snake has parts that are not neighbors
+	 */
+	static void writeKeyframe(SnakeSimulator game, Buffer out) {
+		out.writeVarint(game.getTick());
+		out.writeVarint(game.getFoodSupplyCount());
+		out.writeVarint(game.getFoodSupplyPerTick());
+		FoodIndex foods = game.getFoodIndex();
+		out.writeVarint(foods.size());
+		long previous = 0;
+		for (int i = 0; i < foods.size(); i++) {
+			out.writeZigzag(foods.get(i) - previous);
+			previous = foods.get(i);
+		}
+		SnakePopulation snakes = game.getPopulation();
+		out.writeVarint(snakes.getCount());
+		for (int s = 0; s < snakes.getCount(); s++) {
+			int size = snakes.getSize(s);
+			out.writeVarint(size);
+			out.writeZigzag(snakes.getHeadX(s));
+			out.writeZigzag(snakes.getHeadY(s));
+			int packed = 0;
+			for (int i = 1; i < size; i++) {
+				packed |= direction(snakes.getX(s, i) - snakes.getX(s, i - 1), snakes.getY(s, i) - snakes.getY(s, i - 1))
+						<< ((i - 1) % 4 * 2);
+				if (i % 4 == 0 || i == size - 1) {
+					out.writeByte(packed);
+					packed = 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Ordinal of the direction of a step between two neighbor parts
+	 * @param dx step along x
+	 * @param dy step along y
+	 * @return ordinal of the direction
+	 * @throws IllegalStateException if the parts are not neighbors
+	 */
+	private static int direction(int dx, int dy) {
+		for (Direction dir : DIRECTIONS) {
+			if (dir.getDx() == dx && dir.getDy() == dy) {
+				return dir.ordinal();
+			}
+		}
+		throw new IllegalStateException("Parts of a snake are not neighbors");
+	}
+
+	/**
+	 * Reads a state written by writeKeyframe into a game, everything the game had before is removed
+	 * @param in buffer positioned at the keyframe
+	 * @param game game to load the state into, it must have the size of the recorded one
+	 */
+	static void readKeyframe(ByteBuffer in, SnakeSimulator game) {
+		game.clear();
+		game.setTick(readVarint(in));
+		int foodCount = (int) readVarint(in);
+		int foodPerTick = (int) readVarint(in);
+		game.setFoodSupply(foodCount, foodPerTick);
+		long[] foods = new long[(int) readVarint(in)];
+		long previous = 0;
+		for (int i = 0; i < foods.length; i++) {
+			foods[i] = previous + readZigzag(in);
+			previous = foods[i];
+		}
+		int snakeCount = (int) readVarint(in);
+		int[] coordinates = new int[16];
+		for (int s = 0; s < snakeCount; s++) {
+			int size = (int) readVarint(in);
+			if (coordinates.length < size * 2) {
+				coordinates = new int[Integer.highestOneBit(size * 2) << 1];
+			}
+			coordinates[0] = (int) readZigzag(in);
+			coordinates[1] = (int) readZigzag(in);
+			int packed = 0;
+			for (int i = 1; i < size; i++) {
+				if ((i - 1) % 4 == 0) {
+					packed = in.get();
+				}
+				Direction dir = DIRECTIONS[(packed >>> ((i - 1) % 4 * 2)) & 3];
+				coordinates[i * 2] = coordinates[i * 2 - 2] + dir.getDx();
+				coordinates[i * 2 + 1] = coordinates[i * 2 - 1] + dir.getDy();
+			}
+			game.addSnake(new Snake(coordinates, size));
+		}
+		// food goes in after the snakes, in the recorded order, so that the index is the same
+		for (long cell : foods) {
+			game.addFood(new Food((int) (cell % game.getGridWidth()), (int) (cell / game.getGridWidth())));
+		}
+	}
+}
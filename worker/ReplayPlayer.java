@@ -0,0 +1,370 @@
+package worker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Plays a replay file written by ReplayRecorder into a game. The file is memory mapped, in windows so that files
+ * bigger than 2 GB work too, and nothing is read before it is needed.
+ * While a player is attached, every tick of the game takes its actions and its food from the file instead of
+ * letting the snakes decide, so the recorded run happens again exactly. The game can be driven by step(), by a
+ * HeadlessRunner or by its timer. Seeking loads the nearest keyframe before the wanted tick and plays forward
+ * from there, so it never costs more than keyframeInterval ticks.
+ * @author Burak
+ *
+ */
+public class ReplayPlayer implements Closeable {
+
+	/**
+	 * Size of a mapped window of the file, a record bigger than it gets a window of its own
+	 */
+	private static final long WINDOW_SIZE = 64L << 20;
+
+	/**
+	 * Game the replay is played into
+	 */
+	private final SnakeSimulator game;
+	/**
+	 * Channel of the replay file
+	 */
+	private final FileChannel channel;
+	/**
+	 * File position after the last record that can be played
+	 */
+	private long end;
+	/**
+	 * Currently mapped part of the file, null before the first read
+	 */
+	private MappedByteBuffer window;
+	/**
+	 * File position of the first byte of the window
+	 */
+	private long windowStart;
+	/**
+	 * Ticks and file positions of the keyframes, in tick order
+	 */
+	private long[] keyframeTicks = new long[16], keyframeOffsets = new long[16];
+	/**
+	 * Number of keyframes
+	 */
+	private int keyframes;
+	/**
+	 * Last tick of the recording
+	 */
+	private long lastTick;
+	/**
+	 * File position of the next record to play
+	 */
+	private long position;
+	/**
+	 * Type of the record read last
+	 */
+	private byte recordType;
+	/**
+	 * File position after the record read last
+	 */
+	private long recordEnd;
+	/**
+	 * Actions of the current tick, two in a byte, lower 4 bits first
+	 */
+	private byte[] actions = new byte[64];
+	/**
+	 * Number of actions of the current tick
+	 */
+	private int actionCount;
+	/**
+	 * Cells where food spawns in the current tick, the first spawnsBefore of them before the snakes act
+	 */
+	private long[] spawns = new long[16];
+	/**
+	 * Number of spawns of the current tick, the spawns before the snakes act and the next spawn to give
+	 */
+	private int spawnCount, spawnsBefore, nextSpawn;
+
+	/**
+	 * Opens a replay file and loads its first keyframe into the game
+	 * @param file replay file
+	 * @param game game to play the replay into, it must have the size of the recorded one
+	 * @throws IOException if the file cannot be read or is not a replay file
+	 */
+	public ReplayPlayer(Path file, SnakeSimulator game) throws IOException {
+		this.game = game;
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			readHeader();
+			readIndex();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		game.setPlayer(this);
+		seek(getFirstTick());
+	}
+
+	/**
+	 * Checks the header of the file
+	 * @throws IOException if the file is not a replay file of the game's size
+	 */
+	private void readHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(ReplayFormat.HEADER_SIZE);
+		if (channel.read(header, 0) != ReplayFormat.HEADER_SIZE || header.getInt(0) != ReplayFormat.MAGIC) {
+			throw new IOException("Not a replay file");
+		}
+		if (header.getInt(4) != ReplayFormat.VERSION) {
+			throw new IOException("Unsupported replay version " + header.getInt(4));
+		}
+		if (header.getInt(8) != game.getGridWidth() || header.getInt(12) != game.getGridHeight()) {
+			throw new IOException("Replay is recorded on a " + header.getInt(8) + "x" + header.getInt(12) + " grid");
+		}
+	}
+
+	/**
+	 * Reads the keyframe index from the end of the file. A file that was not closed has no index, then all records
+	 * are scanned and a cut last record is ignored. The last tick is counted from the last keyframe.
+	 * @throws IOException if the file cannot be read
+	 */
+	private void readIndex() throws IOException {
+		long size = channel.size();
+		end = size;
+		long scanFrom = ReplayFormat.HEADER_SIZE;
+		if (size >= ReplayFormat.HEADER_SIZE + ReplayFormat.FOOTER_SIZE) {
+			ByteBuffer footer = ByteBuffer.allocate(ReplayFormat.FOOTER_SIZE);
+			channel.read(footer, size - ReplayFormat.FOOTER_SIZE);
+			if (footer.getInt(8) == ReplayFormat.INDEX_MAGIC) {
+				end = footer.getLong(0);
+				ByteBuffer index = read(end);
+				int count = (int) ReplayFormat.readVarint(index);
+				long tick = 0, offset = 0;
+				for (int i = 0; i < count; i++) {
+					tick += ReplayFormat.readVarint(index);
+					offset += ReplayFormat.readVarint(index);
+					addKeyframe(tick, offset);
+				}
+				scanFrom = keyframeOffsets[keyframes - 1];
+				keyframes--;
+			}
+		}
+		// records after the last indexed keyframe, or all of them without an index
+		long tick = 0;
+		for (long offset = scanFrom; offset < end;) {
+			if (end - offset < 2) {
+				end = offset;
+				break;
+			}
+			ByteBuffer body = read(offset);
+			if (recordEnd > end) {
+				end = offset;
+				break;
+			}
+			if (recordType == ReplayFormat.KEYFRAME) {
+				tick = ReplayFormat.readVarint(body);
+				addKeyframe(tick, offset);
+			} else if (recordType == ReplayFormat.TICK) {
+				tick++;
+			}
+			offset = recordEnd;
+		}
+		if (keyframes == 0) {
+			throw new IOException("Replay file has no keyframe");
+		}
+		lastTick = tick;
+	}
+
+	/**
+	 * Adds a keyframe to the index
+	 * @param tick tick of the keyframe
+	 * @param offset file position of the keyframe
+	 */
+	private void addKeyframe(long tick, long offset) {
+		if (keyframes == keyframeTicks.length) {
+			keyframeTicks = Arrays.copyOf(keyframeTicks, keyframes * 2);
+			keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframes * 2);
+		}
+		keyframeTicks[keyframes] = tick;
+		keyframeOffsets[keyframes++] = offset;
+	}
+
+	/**
+	 * Reads the record at a file position, its type and end are kept in recordType and recordEnd
+	 * @param offset file position of the record
+	 * @return body of the record
+	 * @throws IOException if the file cannot be mapped
+	 */
+	private ByteBuffer read(long offset) throws IOException {
+		ByteBuffer header = map(offset, Math.min(6, channel.size() - offset));
+		recordType = header.get();
+		long length = ReplayFormat.readVarint(header);
+		long bodyStart = offset + header.position();
+		recordEnd = bodyStart + length;
+		if (recordEnd > channel.size()) {
+			// cut record of a file that was not closed, the caller checks recordEnd
+			return ByteBuffer.allocate(0);
+		}
+		return map(bodyStart, length);
+	}
+
+	/**
+	 * Gives a part of the file, the window is moved if the part is not inside it
+	 * @param offset file position of the part
+	 * @param length length of the part
+	 * @return buffer of the part, positioned at its first byte
+	 * @throws IOException if the file cannot be mapped
+	 */
+	private ByteBuffer map(long offset, long length) throws IOException {
+		if (window == null || offset < windowStart || offset + length > windowStart + window.capacity()) {
+			long size = Math.min(Math.max(length, WINDOW_SIZE), channel.size() - offset);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+			windowStart = offset;
+		}
+		ByteBuffer part = window.duplicate();
+		part.position((int) (offset - windowStart));
+		part.limit((int) (offset - windowStart + length));
+		return part.slice();
+	}
+
+	/**
+	 * Getter for the first tick of the recording
+	 * @return tick of the first keyframe
+	 */
+	public long getFirstTick() {
+		return keyframeTicks[0];
+	}
+
+	/**
+	 * Getter for the last tick of the recording
+	 * @return the tick after the last recorded tick
+	 */
+	public long getLastTick() {
+		return lastTick;
+	}
+
+	/**
+	 * Brings the game to the state after the given tick
+	 * @param tick tick to go to, between getFirstTick() and getLastTick()
+	 * @throws IllegalArgumentException if the tick is not in the recording
+	 * @throws UncheckedIOException if the file cannot be read
+	 */
+	public void seek(long tick) {
+		if (tick < getFirstTick() || tick > lastTick) {
+			throw new IllegalArgumentException("Tick " + tick + " is not in the recording");
+		}
+		// last keyframe at or before the tick
+		int k = Arrays.binarySearch(keyframeTicks, 0, keyframes, tick);
+		if (k < 0) {
+			k = -k - 2;
+		}
+		// going forward from the current tick is cheaper if there is no keyframe in between
+		if (game.getTick() > tick || game.getTick() < keyframeTicks[k] || position == 0) {
+			try {
+				ReplayFormat.readKeyframe(read(keyframeOffsets[k]), game);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			position = recordEnd;
+		}
+		while (game.getTick() < tick) {
+			step();
+		}
+	}
+
+	/**
+	 * Plays the next tick of the recording
+	 * @return false if the recording has ended
+	 */
+	public boolean step() {
+		long before = game.getTick();
+		game.timerTick();
+		return game.getTick() != before;
+	}
+
+	/**
+	 * Called by the game at the beginning of a tick, reads the next tick record and spawns the food that
+	 * spawned before the tick. Keyframes on the way are skipped, the game is already in their state.
+	 * @return false if the recording has ended
+	 * @throws UncheckedIOException if the file cannot be read
+	 */
+	boolean beginTick() {
+		try {
+			while (position < end) {
+				ByteBuffer body = read(position);
+				position = recordEnd;
+				if (recordType == ReplayFormat.TICK) {
+					readTick(body);
+					for (int i = 0; i < spawnsBefore; i++) {
+						game.spawnFood();
+					}
+					return true;
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the body of a tick record
+	 * @param body body of the record
+	 */
+	private void readTick(ByteBuffer body) {
+		actionCount = (int) ReplayFormat.readVarint(body);
+		int bytes = (actionCount + 1) / 2;
+		if (actions.length < bytes) {
+			actions = new byte[Math.max(bytes, actions.length * 2)];
+		}
+		body.get(actions, 0, bytes);
+		spawnsBefore = (int) ReplayFormat.readVarint(body);
+		spawnCount = spawnsBefore + (int) ReplayFormat.readVarint(body);
+		if (spawns.length < spawnCount) {
+			spawns = new long[Math.max(spawnCount, spawns.length * 2)];
+		}
+		long previous = 0;
+		for (int i = 0; i < spawnCount; i++) {
+			spawns[i] = previous + ReplayFormat.readZigzag(body);
+			previous = spawns[i];
+		}
+		nextSpawn = 0;
+	}
+
+	/**
+	 * Called by the game instead of letting the snakes decide
+	 * @param decisions buffer to fill, index i belongs to snake i
+	 * @param count number of snakes
+	 * @throws IllegalStateException if the game has another number of snakes than the recording
+	 */
+	void readActions(ActionBuffer decisions, int count) {
+		if (count != actionCount) {
+			throw new IllegalStateException("Replay does not match the game, " + count + " snakes instead of "
+					+ actionCount);
+		}
+		for (int i = 0; i < count; i++) {
+			decisions.set(i, ReplayFormat.checkAction((actions[i >>> 1] >>> ((i & 1) * 4)) & 0xF));
+		}
+	}
+
+	/**
+	 * Called by the game instead of picking a random empty cell for food
+	 * @return cell index of the next recorded food of the tick, -1 if there is no more
+	 */
+	long nextFood() {
+		return nextSpawn < spawnCount ? spawns[nextSpawn++] : -1;
+	}
+
+	/**
+	 * Stops playing, the game simulates by itself again from its current state
+	 * @throws IOException if the file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		game.setPlayer(null);
+		window = null;
+		channel.close();
+	}
+}
@@ -0,0 +1,213 @@
+package worker;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Records a game into a replay file, see ReplayFormat for the layout.
+ * Every tick costs about half a byte for each snake, its actions are packed two in a byte, plus a few bytes for
+ * the food that spawned. The whole state is written as a keyframe every keyframeInterval ticks, so a player can
+ * start from the nearest keyframe instead of the beginning.
+ * Only the ticks and spawnFood() are recorded. Snakes or food added by hand after the recording has started
+ * are not in the file.
+ * @author Burak
+ *
+ */
+public class ReplayRecorder implements Closeable {
+
+	/**
+	 * Recorded game
+	 */
+	private final SnakeSimulator game;
+	/**
+	 * Stream of the replay file
+	 */
+	private final DataOutputStream out;
+	/**
+	 * Number of ticks between two keyframes
+	 */
+	private final int keyframeInterval;
+	/**
+	 * Number of bytes written into the file so far
+	 */
+	private long offset;
+	/**
+	 * Tick of the last keyframe
+	 */
+	private long lastKeyframe;
+	/**
+	 * Ticks and file positions of the keyframes, first keyframes entries are valid
+	 */
+	private long[] keyframeTicks = new long[16], keyframeOffsets = new long[16];
+	/**
+	 * Number of keyframes written
+	 */
+	private int keyframes;
+	/**
+	 * Body of the record being written, reused for every record
+	 */
+	private final ReplayFormat.Buffer record = new ReplayFormat.Buffer();
+	/**
+	 * Actions of the current tick, two in a byte, lower 4 bits first
+	 */
+	private byte[] actions = new byte[64];
+	/**
+	 * Number of actions of the current tick
+	 */
+	private int actionCount;
+	/**
+	 * Cells where food spawned since the last tick record, first spawnCount entries are valid
+	 */
+	private long[] spawns = new long[16];
+	/**
+	 * Number of spawned food since the last tick record
+	 */
+	private int spawnCount;
+	/**
+	 * Number of the spawns that happened before the current tick began
+	 */
+	private int spawnsBefore;
+
+	/**
+	 * Creates the replay file and starts recording the game, the current state is the first keyframe
+	 * @param game game to record
+	 * @param file replay file, it is overwritten if it exists
+	 * @param keyframeInterval number of ticks between two keyframes
+	 * @throws IOException if the file cannot be written
+	 * @throws IllegalArgumentException if the interval is not positive
+	 */
+	public ReplayRecorder(SnakeSimulator game, Path file, int keyframeInterval) throws IOException {
+		if (keyframeInterval <= 0) {
+			throw new IllegalArgumentException("Invalid keyframe interval " + keyframeInterval);
+		}
+		this.game = game;
+		this.keyframeInterval = keyframeInterval;
+		this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+		out.writeInt(ReplayFormat.MAGIC);
+		out.writeInt(ReplayFormat.VERSION);
+		out.writeInt(game.getGridWidth());
+		out.writeInt(game.getGridHeight());
+		offset = ReplayFormat.HEADER_SIZE;
+		writeKeyframe();
+		game.setRecorder(this);
+	}
+
+	/**
+	 * Called by the game at the beginning of a tick, writes a keyframe if one is due
+	 */
+	void beginTick() {
+		if (game.getTick() - lastKeyframe >= keyframeInterval) {
+			try {
+				writeKeyframe();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		spawnsBefore = spawnCount;
+	}
+
+	/**
+	 * Called by the game with the chosen actions of a tick
+	 * @param decisions actions of the snakes
+	 * @param count number of snakes
+	 */
+	void recordActions(ActionBuffer decisions, int count) {
+		if (actions.length < (count + 1) / 2) {
+			actions = new byte[Math.max((count + 1) / 2, actions.length * 2)];
+		}
+		Arrays.fill(actions, 0, (count + 1) / 2, (byte) 0);
+		for (int i = 0; i < count; i++) {
+			actions[i >>> 1] |= decisions.get(i) << ((i & 1) * 4);
+		}
+		actionCount = count;
+	}
+
+	/**
+	 * Called by the game when food spawns, inside or outside of a tick
+	 * @param cell cell index of the food
+	 */
+	void recordFood(long cell) {
+		if (spawnCount == spawns.length) {
+			spawns = Arrays.copyOf(spawns, spawnCount * 2);
+		}
+		spawns[spawnCount++] = cell;
+	}
+
+	/**
+	 * Called by the game at the end of a tick, writes the tick record
+	 */
+	void endTick() {
+		record.clear();
+		record.writeVarint(actionCount);
+		record.writeBytes(actions, (actionCount + 1) / 2);
+		record.writeVarint(spawnsBefore);
+		record.writeVarint(spawnCount - spawnsBefore);
+		long previous = 0;
+		for (int i = 0; i < spawnCount; i++) {
+			record.writeZigzag(spawns[i] - previous);
+			previous = spawns[i];
+		}
+		spawnCount = 0;
+		try {
+			offset += record.writeRecord(out, ReplayFormat.TICK);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes the current state as a keyframe, food spawned before it is a part of the state
+	 * @throws IOException if the file cannot be written
+	 */
+	private void writeKeyframe() throws IOException {
+		if (keyframes == keyframeTicks.length) {
+			keyframeTicks = Arrays.copyOf(keyframeTicks, keyframes * 2);
+			keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframes * 2);
+		}
+		keyframeTicks[keyframes] = game.getTick();
+		keyframeOffsets[keyframes++] = offset;
+		lastKeyframe = game.getTick();
+		spawnCount = 0;
+		record.clear();
+		ReplayFormat.writeKeyframe(game, record);
+		offset += record.writeRecord(out, ReplayFormat.KEYFRAME);
+	}
+
+	/**
+	 * Getter for the size of the file so far
+	 * @return number of bytes written, some of them may still be buffered
+	 */
+	public long getBytesWritten() {
+		return offset;
+	}
+
+	/**
+	 * Stops recording and writes the keyframe index, the file is complete after it
+	 * @throws IOException if the file cannot be written
+	 */
+	@Override
+	public void close() throws IOException {
+		game.setRecorder(null);
+		record.clear();
+		record.writeVarint(keyframes);
+		long previousTick = 0, previousOffset = 0;
+		for (int i = 0; i < keyframes; i++) {
+			record.writeVarint(keyframeTicks[i] - previousTick);
+			record.writeVarint(keyframeOffsets[i] - previousOffset);
+			previousTick = keyframeTicks[i];
+			previousOffset = keyframeOffsets[i];
+		}
+		long indexOffset = offset;
+		offset += record.writeRecord(out, ReplayFormat.INDEX);
+		out.writeLong(indexOffset);
+		out.writeInt(ReplayFormat.INDEX_MAGIC);
+		offset += ReplayFormat.FOOTER_SIZE;
+		out.close();
+	}
+}
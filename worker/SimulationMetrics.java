@@ -0,0 +1,189 @@
+package worker;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import game.LatencyHistogram;
+import game.LatencyStatistics;
+
+/**
+ * Timings and counters of a simulator. Every tick records the time of its phases into histograms and adds
+ * what the snakes did to the counters, once per tick, so the cost does not grow with the number of snakes.
+ * The metrics can be published as an MXBean, then any JMX client such as JConsole shows them on a running game.
+ * @author Burak
+ *
+ */
+public class SimulationMetrics implements SimulationMetricsMXBean {
+
+	/**
+	 * Simulator of the metrics, for the tick, redraw and paint times kept by the game
+	 */
+	private final SnakeSimulator game;
+	/**
+	 * Times of the phases of a tick
+	 */
+	private final LatencyHistogram sense = new LatencyHistogram(), decide = new LatencyHistogram(),
+			apply = new LatencyHistogram(), food = new LatencyHistogram();
+	/**
+	 * Number of ticks recorded
+	 */
+	private final AtomicLong ticks = new AtomicLong();
+	/**
+	 * Number of each kind of executed action
+	 */
+	private final AtomicLong moves = new AtomicLong(), eats = new AtomicLong(), reproductions = new AtomicLong(),
+			stays = new AtomicLong();
+	/**
+	 * Number of snakes at the last tick
+	 */
+	private volatile int snakeCount;
+	/**
+	 * Name the metrics are published with, null if they are not published
+	 */
+	private ObjectName name;
+
+	/**
+	 * Constructor for the metrics of a simulator
+	 * @param game the simulator
+	 */
+	SimulationMetrics(SnakeSimulator game) {
+		this.game = game;
+	}
+
+	/**
+	 * Records a tick, called by the simulator
+	 * @param snakes number of snakes that acted
+	 * @param senseNanos time of updating the distance field
+	 * @param decideNanos time of choosing the actions
+	 * @param applyNanos time of executing the actions
+	 * @param foodNanos time of spawning food
+	 * @param moveCount number of moves
+	 * @param eatCount number of eats
+	 * @param reproductionCount number of reproductions
+	 * @param stayCount number of stays
+	 */
+	void recordTick(int snakes, long senseNanos, long decideNanos, long applyNanos, long foodNanos,
+			int moveCount, int eatCount, int reproductionCount, int stayCount) {
+		sense.record(senseNanos);
+		decide.record(decideNanos);
+		apply.record(applyNanos);
+		food.record(foodNanos);
+		ticks.incrementAndGet();
+		moves.addAndGet(moveCount);
+		eats.addAndGet(eatCount);
+		reproductions.addAndGet(reproductionCount);
+		stays.addAndGet(stayCount);
+		snakeCount = snakes;
+	}
+
+	/**
+	 * Publishes the metrics in the platform MBean server
+	 * @param id name of this simulator among the published ones
+	 * @throws IllegalStateException if the metrics cannot be published, for example if the id is taken
+	 */
+	public synchronized void register(String id) {
+		try {
+			ObjectName objectName = new ObjectName("snakegame:type=SnakeSimulator,name=" + ObjectName.quote(id));
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(this, objectName);
+			name = objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Metrics cannot be published as " + id, e);
+		}
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server, nothing happens if they are not published
+	 */
+	public synchronized void unregister() {
+		if (name == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		} catch (JMException e) {
+			// already removed by someone else
+		}
+		name = null;
+	}
+
+	@Override
+	public long getTicks() {
+		return ticks.get();
+	}
+
+	@Override
+	public int getSnakeCount() {
+		return snakeCount;
+	}
+
+	@Override
+	public long getMoves() {
+		return moves.get();
+	}
+
+	@Override
+	public long getEats() {
+		return eats.get();
+	}
+
+	@Override
+	public long getReproductions() {
+		return reproductions.get();
+	}
+
+	@Override
+	public long getStays() {
+		return stays.get();
+	}
+
+	@Override
+	public LatencyStatistics getTick() {
+		return game.getTickTimes().getStatistics();
+	}
+
+	@Override
+	public LatencyStatistics getSense() {
+		return sense.getStatistics();
+	}
+
+	@Override
+	public LatencyStatistics getDecide() {
+		return decide.getStatistics();
+	}
+
+	@Override
+	public LatencyStatistics getApply() {
+		return apply.getStatistics();
+	}
+
+	@Override
+	public LatencyStatistics getFood() {
+		return food.getStatistics();
+	}
+
+	@Override
+	public LatencyStatistics getRedraw() {
+		return game.getRedrawTimes().getStatistics();
+	}
+
+	@Override
+	public LatencyStatistics getRepaint() {
+		return game.getPaintTimes().getStatistics();
+	}
+
+	@Override
+	public void reset() {
+		for (LatencyHistogram histogram : new LatencyHistogram[] {sense, decide, apply, food, game.getTickTimes(),
+				game.getRedrawTimes(), game.getPaintTimes()}) {
+			histogram.reset();
+		}
+		for (AtomicLong counter : new AtomicLong[] {ticks, moves, eats, reproductions, stays}) {
+			counter.set(0);
+		}
+	}
+}
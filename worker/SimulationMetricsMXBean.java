@@ -0,0 +1,95 @@
+package worker;
+
+import game.LatencyStatistics;
+
+/**
+ * Management interface of SimulationMetrics. Times are in microseconds, counters count from the start or
+ * the last reset.
+ * @author Burak
+ *
+ */
+public interface SimulationMetricsMXBean {
+
+	/**
+	 * Getter for the number of ticks
+	 * @return tick count
+	 */
+	long getTicks();
+
+	/**
+	 * Getter for the number of snakes
+	 * @return snake count at the last tick
+	 */
+	int getSnakeCount();
+
+	/**
+	 * Getter for the number of moves
+	 * @return move count
+	 */
+	long getMoves();
+
+	/**
+	 * Getter for the number of eats
+	 * @return eat count
+	 */
+	long getEats();
+
+	/**
+	 * Getter for the number of reproductions
+	 * @return reproduction count
+	 */
+	long getReproductions();
+
+	/**
+	 * Getter for the number of stays, blocked moves included
+	 * @return stay count
+	 */
+	long getStays();
+
+	/**
+	 * Getter for the times of whole ticks
+	 * @return tick time statistics
+	 */
+	LatencyStatistics getTick();
+
+	/**
+	 * Getter for the times of updating the shared distance field
+	 * @return sense time statistics
+	 */
+	LatencyStatistics getSense();
+
+	/**
+	 * Getter for the times of choosing the actions
+	 * @return decide time statistics
+	 */
+	LatencyStatistics getDecide();
+
+	/**
+	 * Getter for the times of executing the actions
+	 * @return apply time statistics
+	 */
+	LatencyStatistics getApply();
+
+	/**
+	 * Getter for the times of spawning food
+	 * @return food time statistics
+	 */
+	LatencyStatistics getFood();
+
+	/**
+	 * Getter for the times of drawing frames into the image
+	 * @return redraw time statistics
+	 */
+	LatencyStatistics getRedraw();
+
+	/**
+	 * Getter for the times of painting the panel
+	 * @return paint time statistics
+	 */
+	LatencyStatistics getRepaint();
+
+	/**
+	 * Sets all counters and times to zero
+	 */
+	void reset();
+}
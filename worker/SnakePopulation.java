@@ -0,0 +1,371 @@
+package worker;
+
+import java.util.Arrays;
+
+import assets.Snake;
+import game.Direction;
+import game.Drawable;
+import ui.GridPanel;
+
+/**
+ * Every snake of a game kept in parallel primitive arrays instead of one object for each snake.
+ * A snake is named by its handle, the index it got when it was added. Snakes are never removed, so a handle never
+ * changes; the snakes of a tick are the handles below getCount() at its beginning and the ones born during the tick
+ * are appended after them.
+ * The parts of all snakes live in one array, every snake has a ring buffer of a power of two slots in it that works
+ * like the one of Snake, so a tick over millions of snakes goes over a few arrays from front to back instead of
+ * following a pointer for each snake.
+ * @author Burak
+ *
+ */
+public final class SnakePopulation implements Drawable {
+
+	/**
+	 * Number of snakes
+	 */
+	private int count;
+	/**
+	 * Number of parts of every snake
+	 */
+	private int[] sizes = new int[16];
+	/**
+	 * Start of the ring buffer of every snake in the parts array
+	 */
+	private int[] offsets = new int[16];
+	/**
+	 * Number of slots minus one of the ring buffer of every snake
+	 */
+	private int[] masks = new int[16];
+	/**
+	 * Slot of the head of every snake in its ring buffer, the part with index k is in slot (head + k) & mask
+	 */
+	private int[] heads = new int[16];
+	/**
+	 * State and increment of the random numbers of every snake, as in RandomSource
+	 */
+	private long[] seeds = new long[16], gammas = new long[16];
+	/**
+	 * Parts of all snakes, y in the upper and x in the lower half
+	 */
+	private long[] parts = new long[256];
+	/**
+	 * Number of slots of the parts array given to ring buffers, the ones after it are unused
+	 */
+	private int used;
+
+	/**
+	 * Getter for the number of snakes
+	 * @return snake count, handles go from 0 to count-1
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Adds a snake, its parts are copied
+	 * @param snake snake to copy
+	 * @param random random numbers of the snake, the state is copied
+	 * @return handle of the new snake
+	 */
+	public int add(Snake snake, RandomSource random) {
+		int handle = append(snake.getSize(), random);
+		for (int i = 0; i < snake.getSize(); i++) {
+			parts[offsets[handle] + i] = pack(snake.getX(i), snake.getY(i));
+		}
+		return handle;
+	}
+
+	/**
+	 * Adds a snake with known parts
+	 * @param coordinates packed coordinates of the parts, x of part i is at 2*i and y at 2*i+1, head is part 0
+	 * @param size number of parts
+	 * @param random random numbers of the snake, the state is copied
+	 * @return handle of the new snake
+	 */
+	public int add(int[] coordinates, int size, RandomSource random) {
+		int handle = append(size, random);
+		for (int i = 0; i < size; i++) {
+			parts[offsets[handle] + i] = pack(coordinates[i * 2], coordinates[i * 2 + 1]);
+		}
+		return handle;
+	}
+
+	/**
+	 * Creates a snake with an empty ring buffer whose head is in slot 0
+	 * @param size number of parts the snake will have
+	 * @param random random numbers of the snake
+	 * @return handle of the new snake
+	 */
+	private int append(int size, RandomSource random) {
+		if (count == sizes.length) {
+			int length = count * 2;
+			sizes = Arrays.copyOf(sizes, length);
+			offsets = Arrays.copyOf(offsets, length);
+			masks = Arrays.copyOf(masks, length);
+			heads = Arrays.copyOf(heads, length);
+			seeds = Arrays.copyOf(seeds, length);
+			gammas = Arrays.copyOf(gammas, length);
+		}
+		int handle = count;
+		int slots = slotsFor(Math.max(size, Snake.DIVIDING_SIZE));
+		// the buffer is made before the snake is counted, so a move of the buffers does not look for it
+		int offset = allocate(slots);
+		count++;
+		sizes[handle] = size;
+		offsets[handle] = offset;
+		masks[handle] = slots - 1;
+		heads[handle] = 0;
+		seeds[handle] = random.getSeed();
+		gammas[handle] = random.getGamma();
+		return handle;
+	}
+
+	/**
+	 * Smallest power of two slot count for a number of parts
+	 * @param capacity minimum slot count
+	 * @return slot count
+	 */
+	private static int slotsFor(int capacity) {
+		return Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+	}
+
+	/**
+	 * Gives a ring buffer of slots at the end of the parts array. If it is full, the buffers of the snakes are
+	 * moved to a bigger array one after the other and the ones left behind by growing snakes are dropped.
+	 * @param slots number of slots
+	 * @return start of the buffer
+	 */
+	private int allocate(int slots) {
+		if (used + slots > parts.length) {
+			int live = 0;
+			for (int h = 0; h < count; h++) {
+				live += masks[h] + 1;
+			}
+			long[] moved = new long[Math.max(parts.length, (live + slots) * 2)];
+			int end = 0;
+			for (int h = 0; h < count; h++) {
+				System.arraycopy(parts, offsets[h], moved, end, masks[h] + 1);
+				offsets[h] = end;
+				end += masks[h] + 1;
+			}
+			parts = moved;
+			used = end;
+		}
+		int offset = used;
+		used += slots;
+		return offset;
+	}
+
+	/**
+	 * Packs a position into one number of the parts array
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return the packed position
+	 */
+	private static long pack(int x, int y) {
+		return (long) y << 32 | (x & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Getter for the size of a snake
+	 * @param handle handle of the snake
+	 * @return number of parts
+	 */
+	public int getSize(int handle) {
+		return sizes[handle];
+	}
+
+	/**
+	 * Getter for the x coordinate of a part of a snake
+	 * @param handle handle of the snake
+	 * @param index index of the part, 0 is the head and size-1 is the tail
+	 * @return x coordinate of the part
+	 */
+	public int getX(int handle, int index) {
+		return (int) parts[offsets[handle] + ((heads[handle] + index) & masks[handle])];
+	}
+
+	/**
+	 * Getter for the y coordinate of a part of a snake
+	 * @param handle handle of the snake
+	 * @param index index of the part, 0 is the head and size-1 is the tail
+	 * @return y coordinate of the part
+	 */
+	public int getY(int handle, int index) {
+		return (int) (parts[offsets[handle] + ((heads[handle] + index) & masks[handle])] >> 32);
+	}
+
+	/**
+	 * Getter for the x coordinate of the head of a snake
+	 * @param handle handle of the snake
+	 * @return x coordinate of the head
+	 */
+	public int getHeadX(int handle) {
+		return (int) parts[offsets[handle] + heads[handle]];
+	}
+
+	/**
+	 * Getter for the y coordinate of the head of a snake
+	 * @param handle handle of the snake
+	 * @return y coordinate of the head
+	 */
+	public int getHeadY(int handle) {
+		return (int) (parts[offsets[handle] + heads[handle]] >> 32);
+	}
+
+	/**
+	 * Getter for the x coordinate of the tail of a snake
+	 * @param handle handle of the snake
+	 * @return x coordinate of the tail
+	 */
+	public int getTailX(int handle) {
+		return getX(handle, sizes[handle] - 1);
+	}
+
+	/**
+	 * Getter for the y coordinate of the tail of a snake
+	 * @param handle handle of the snake
+	 * @return y coordinate of the tail
+	 */
+	public int getTailY(int handle) {
+		return getY(handle, sizes[handle] - 1);
+	}
+
+	/**
+	 * Moves a snake 1 box further, the old tail is dropped, so the caller should read the tail before moving
+	 * @param handle handle of the snake
+	 * @param dir direction of the move
+	 */
+	public void move(int handle, Direction dir) {
+		long head = parts[offsets[handle] + heads[handle]];
+		// new head is written over the slot of the old tail
+		heads[handle] = (heads[handle] - 1) & masks[handle];
+		parts[offsets[handle] + heads[handle]] = pack((int) head + dir.getDx(), (int) (head >> 32) + dir.getDy());
+	}
+
+	/**
+	 * Makes a snake bigger by adding the box in a direction as the new head
+	 * @param handle handle of the snake
+	 * @param dir direction of the food
+	 */
+	public void eat(int handle, Direction dir) {
+		long head = parts[offsets[handle] + heads[handle]];
+		if (sizes[handle] == masks[handle] + 1) {
+			grow(handle);
+		}
+		heads[handle] = (heads[handle] - 1) & masks[handle];
+		parts[offsets[handle] + heads[handle]] = pack((int) head + dir.getDx(), (int) (head >> 32) + dir.getDy());
+		sizes[handle]++;
+	}
+
+	/**
+	 * Gives a snake a ring buffer twice as big, parts are copied so that the head is at slot 0 again.
+	 * The old buffer is dropped the next time the buffers are moved.
+	 * @param handle handle of the snake
+	 */
+	private void grow(int handle) {
+		int slots = (masks[handle] + 1) * 2;
+		int offset = allocate(slots);
+		// the old buffer is read after allocating, which may have moved it
+		int old = offsets[handle];
+		for (int i = 0; i < sizes[handle]; i++) {
+			parts[offset + i] = parts[old + ((heads[handle] + i) & masks[handle])];
+		}
+		offsets[handle] = offset;
+		masks[handle] = slots - 1;
+		heads[handle] = 0;
+	}
+
+	/**
+	 * Divides a snake, its tail half becomes a new snake whose head is the old tail, as in Snake.reproduce()
+	 * @param handle handle of the snake
+	 * @param random random numbers of the new snake
+	 * @return handle of the new snake
+	 */
+	public int reproduce(int handle, RandomSource random) {
+		int half = sizes[handle] / 2;
+		int child = append(half, random);
+		// new snake's parts are the current snake's tail parts in reverse order
+		int offset = offsets[handle], head = heads[handle], mask = masks[handle], size = sizes[handle];
+		int childOffset = offsets[child];
+		for (int i = 0; i < half; i++) {
+			parts[childOffset + i] = parts[offset + ((head + size - 1 - i) & mask)];
+		}
+		sizes[handle] -= half;
+		return child;
+	}
+
+	/**
+	 * Copies the random numbers of a snake into a source, so that the snake can decide with it
+	 * @param handle handle of the snake
+	 * @param random source to continue the stream of the snake
+	 */
+	void loadRandom(int handle, RandomSource random) {
+		random.setState(seeds[handle], gammas[handle]);
+	}
+
+	/**
+	 * Copies back the state of a source given to loadRandom, after the snake has used it
+	 * @param handle handle of the snake
+	 * @param random source that continued the stream of the snake
+	 */
+	void storeRandom(int handle, RandomSource random) {
+		seeds[handle] = random.getSeed();
+	}
+
+	/**
+	 * Getter for the random numbers of a snake
+	 * @param handle handle of the snake
+	 * @return a new source that continues with the numbers of the snake, using it does not change the snake
+	 */
+	public RandomSource getRandom(int handle) {
+		return new RandomSource(seeds[handle], gammas[handle]);
+	}
+
+	/**
+	 * Setter for the random numbers of a snake
+	 * @param handle handle of the snake
+	 * @param random source whose state is copied
+	 */
+	public void setRandom(int handle, RandomSource random) {
+		seeds[handle] = random.getSeed();
+		gammas[handle] = random.getGamma();
+	}
+
+	/**
+	 * Copies a snake into a Snake object
+	 * @param handle handle of the snake
+	 * @return new snake with the parts and the random numbers of the snake, changing it does not change this one
+	 */
+	public Snake toSnake(int handle) {
+		int size = sizes[handle];
+		int[] coordinates = new int[size * 2];
+		for (int i = 0; i < size; i++) {
+			coordinates[i * 2] = getX(handle, i);
+			coordinates[i * 2 + 1] = getY(handle, i);
+		}
+		Snake snake = new Snake(coordinates, size);
+		snake.setRandom(getRandom(handle));
+		return snake;
+	}
+
+	/**
+	 * Removes every snake
+	 */
+	public void clear() {
+		count = 0;
+		used = 0;
+	}
+
+	/**
+	 * Draws every part of every snake, heads are blue and others are red
+	 */
+	@Override
+	public void draw(GridPanel panel) {
+		for (int h = 0; h < count; h++) {
+			for (int i = 0; i < sizes[h]; i++) {
+				Snake.drawPart(panel, getX(h, i), getY(h, i), i == 0);
+			}
+		}
+	}
+}
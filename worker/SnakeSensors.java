@@ -0,0 +1,235 @@
+package worker;
+
+import game.Direction;
+
+/**
+ * What every snake senses at the beginning of a tick, gathered for the whole population at once before anybody
+ * decides. The states of the four neighbors of every head are kept in one short array, 4 bits for each direction
+ * in ordinal order, so a strategy goes over plain arrays instead of loading the surroundings snake by snake.
+ * The food, the distance field and the map of the tick can be read as well; nothing may change them while the
+ * snakes decide. Strategies that look ahead can get a snapshot of the tick and play forks of it forward.
+ * @author Burak
+ *
+ */
+public final class SnakeSensors {
+
+	/**
+	 * Snakes of the game
+	 */
+	private SnakePopulation snakes;
+	/**
+	 * Map of the game
+	 */
+	private WorldGrid map;
+	/**
+	 * Food of the game
+	 */
+	private FoodIndex foods;
+	/**
+	 * Distance field of the tick, null if the game does not keep one
+	 */
+	private FlowField flowField;
+	/**
+	 * Number of snakes that decide in the tick
+	 */
+	private int count;
+	/**
+	 * States of the neighbors of the head of every snake, 4 bits for each direction
+	 */
+	private short[] neighbors = new short[16];
+	/**
+	 * Snapshot of the tick, made when a strategy asks for it first
+	 */
+	private volatile WorldSnapshot snapshot;
+
+	/**
+	 * Senses the surroundings of snakes 0 to count-1, big populations are sensed in parallel
+	 * @param map map of the game
+	 * @param foods food of the game
+	 * @param flowField distance field of the tick, null if there is none
+	 * @param snakes snakes of the game
+	 * @param count number of snakes that decide
+	 */
+	void update(WorldGrid map, FoodIndex foods, FlowField flowField, SnakePopulation snakes, int count) {
+		this.map = map;
+		this.foods = foods;
+		this.flowField = flowField;
+		this.snakes = snakes;
+		this.count = count;
+		this.snapshot = null;
+		if (neighbors.length < count) {
+			neighbors = new short[Math.max(count, neighbors.length * 2)];
+		}
+		if (count < RangeTask.PARALLEL_THRESHOLD) {
+			sense(0, count);
+		} else {
+			RangeTask.run(count, this::sense);
+		}
+	}
+
+	/**
+	 * Senses the surroundings of a range of snakes
+	 * @param from index of the first snake
+	 * @param to index after the last snake
+	 */
+	private void sense(int from, int to) {
+		for (int i = from; i < to; i++) {
+			int x = snakes.getHeadX(i), y = snakes.getHeadY(i);
+			neighbors[i] = (short) (state(x, y - 1) << (Direction.UP.ordinal() * 4)
+					| state(x, y + 1) << (Direction.DOWN.ordinal() * 4)
+					| state(x - 1, y) << (Direction.LEFT.ordinal() * 4)
+					| state(x + 1, y) << (Direction.RIGHT.ordinal() * 4));
+		}
+	}
+
+	/**
+	 * State of a cell of the map, or OUTSIDE
+	 * @param x x coordinate of the cell
+	 * @param y y coordinate of the cell
+	 * @return state of the cell
+	 */
+	private int state(int x, int y) {
+		return map.isInside(x, y) ? map.get(x, y) : LocalInformation.OUTSIDE;
+	}
+
+	/**
+	 * Bitmask of the directions whose neighbor has a state
+	 * @param neighbors states of the four neighbors, 4 bits for each direction
+	 * @param state state to look for
+	 * @return bit i is set if the neighbor in the direction with ordinal i has the state
+	 */
+	static int mask(int neighbors, int state) {
+		int mask = 0;
+		for (int dir = 0; dir < 4; dir++) {
+			if (((neighbors >>> (dir * 4)) & 0xF) == state) {
+				mask |= 1 << dir;
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Getter for the number of snakes that decide in the tick
+	 * @return snake count, snakes are numbered from 0
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Getter for the size of a snake
+	 * @param i index of the snake
+	 * @return number of parts
+	 */
+	public int getSize(int i) {
+		return snakes.getSize(i);
+	}
+
+	/**
+	 * Getter for the x coordinate of the head of a snake
+	 * @param i index of the snake
+	 * @return x coordinate
+	 */
+	public int getHeadX(int i) {
+		return snakes.getHeadX(i);
+	}
+
+	/**
+	 * Getter for the y coordinate of the head of a snake
+	 * @param i index of the snake
+	 * @return y coordinate
+	 */
+	public int getHeadY(int i) {
+		return snakes.getHeadY(i);
+	}
+
+	/**
+	 * Getter for the states of the neighbors of the head of a snake
+	 * @param i index of the snake
+	 * @return 4 bits for each direction in ordinal order, WorldGrid states or LocalInformation.OUTSIDE
+	 */
+	public int getNeighbors(int i) {
+		return neighbors[i];
+	}
+
+	/**
+	 * Getter for the directions a snake can move to
+	 * @param i index of the snake
+	 * @return bitmask of the empty neighbors, bit i belongs to the direction with ordinal i
+	 */
+	public int getFreeMask(int i) {
+		return mask(neighbors[i], WorldGrid.EMPTY);
+	}
+
+	/**
+	 * Getter for the directions a snake can eat in
+	 * @param i index of the snake
+	 * @return bitmask of the neighbors with food, bit i belongs to the direction with ordinal i
+	 */
+	public int getFoodMask(int i) {
+		return mask(neighbors[i], WorldGrid.FOOD);
+	}
+
+	/**
+	 * Getter for the food of the game, for strategies that look further than the neighbors
+	 * @return food index, it must not be changed
+	 */
+	public FoodIndex getFoods() {
+		return foods;
+	}
+
+	/**
+	 * Getter for the distance field of the tick
+	 * @return distance field to the food, null if the game does not keep one
+	 */
+	public FlowField getFlowField() {
+		return flowField;
+	}
+
+	/**
+	 * Getter for the map of the game
+	 * @return map, it must not be changed
+	 */
+	public WorldGrid getMap() {
+		return map;
+	}
+
+	/**
+	 * Getter for a snapshot of the world at the beginning of the tick, it is made at the first call of the tick
+	 * and shared by every snake, so it must only be forked and never changed
+	 * @return snapshot of the map and the snakes
+	 * @throws IllegalArgumentException if the world is too big for snapshots
+	 */
+	public WorldSnapshot getSnapshot() {
+		WorldSnapshot snapshot = this.snapshot;
+		if (snapshot == null) {
+			// snakes deciding in parallel may ask at the same time, only one of them makes it
+			synchronized (this) {
+				snapshot = this.snapshot;
+				if (snapshot == null) {
+					snapshot = new WorldSnapshot(map, snakes, foods.size());
+					this.snapshot = snapshot;
+				}
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Copies the random numbers of a snake into a source, so that the snake can decide with its own stream
+	 * @param i index of the snake
+	 * @param random source to continue the stream of the snake
+	 */
+	public void loadRandom(int i, RandomSource random) {
+		snakes.loadRandom(i, random);
+	}
+
+	/**
+	 * Copies back the state of a source given to loadRandom, after the snake has used it
+	 * @param i index of the snake
+	 * @param random source that continued the stream of the snake
+	 */
+	public void storeRandom(int i, RandomSource random) {
+		snakes.storeRandom(i, random);
+	}
+}
@@ -1,256 +1,607 @@
-package worker;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.ListIterator;
-
-import assets.Node;
-import assets.Node.Value;
-import assets.Snake;
-import assets.Food;
-import game.Direction;
-import game.GridGame;
-/**
- * Most important and clever class of the game and project
- * Arranges most of the game
- * @author Burak
- *
- */
-public class SnakeSimulator extends GridGame {
-	/**
-	 * Multi-Dimension array of node to keep map in a right way
-	 */
-	private Node[][] map;
-	/**
-	 * Food for the game
-	 */
-	private Food food;
-	/**
-	 * Snakes in the game is kept in this field
-	 */
-	private ArrayList<Snake> snakes;
-	/**
-	 * Iterator to add/remove node without any error
-	 */
-	private ListIterator<Snake> it;
-
-	/**
-	 * Constructor for the snake simulator game. Also, calls the constructor of the GridGame class
-	 * @param gridWidth Width of the game
-	 * @param gridHeight Height of the game
-	 * @param gridSquareSize Size of the one square
-	 * @param frameRate rate of the game
-	 */
-	public SnakeSimulator(int gridWidth, int gridHeight, int gridSquareSize, int frameRate) {
-		super(gridWidth, gridHeight, gridSquareSize, frameRate);
-		map = new Node[gridWidth][gridHeight];
-		snakes = new ArrayList<Snake>();
-		it = snakes.listIterator();
-		for(int i = 0; i < map.length ; i++) {
-			for(int j = 0; j < map[i].length; j++) {
-				map[i][j] = new Node( Value.EMPTY, false,i,j);	
-			}
-		}
-	}
-
-
-	@Override
-	protected void timerTick() {
-		//iterator
-		it = snakes.listIterator();
-		while(it.hasNext()){
-			Snake copy = it.next();
-			Action action = copy.chooseAction(createLocalInformationForSnake(copy));
-			// Execute action
-			if (action != null) {
-				if (action.getType() == Action.Type.STAY) {
-					// STAY
-					copy.stay();
-				} else if (action.getType() == Action.Type.REPRODUCE) {
-					// REPRODUCE
-					addSnake(copy.reproduce());
-				} else if (action.getType() == Action.Type.MOVE) {
-					copy.move(action.getDirection());
-					// moving snake's old tail is updated and removed here
-					updateMap(copy.getList().getLast().getX(),copy.getList().getLast().getY(),copy.getList().removeLast());
-				} else if (action.getType() == Action.Type.EAT) {
-					// EAT
-					Node food = getNodeAtDirection(copy.getList().getFirst().getX(), copy.getList().getFirst().getY(), action.getDirection());
-					if (food.getValue() == Value.FOOD) {
-						copy.eat(food);
-						removeDrawable(food);
-						int x = getX();
-						int y = getY();
-						//to get a free and empty spawn point for the food
-						while(map[x][y].getValue() != Value.EMPTY) {
-							x = getX();
-							y = getY();
-						}
-						addFood(new Food(x, y));
-					}
-				}
-			}
-
-			for(Node n : copy.getList()) {
-				updateMap(n.getX(),n.getY(), n);
-			}
-		}
-	}
-
-
-	/**
-	 * Method to add food, in this project no further purpose needed
-	 * @param food food to add the game
-	 */
-	public void addFood(Food food) {
-		this.food = food;
-		Node n = food.getFood();
-		if (isPositionInsideGrid(n.getX(), n.getY())) {
-			if (map[n.getX()][n.getY()].getValue()== Value.EMPTY) {
-				addDrawable(n);
-				updateMap(n.getX(),n.getY(), n);
-			} 
-		} 
-	}
-
-
-	/**
-	 * Method to add newborn snake to the game
-	 * @param sn snake to add
-	 */
-	public void addSnake(Snake sn) {
-		// iterator keeps going
-		while(it.hasNext()) {
-			it.next();
-		}
-		it.add(sn);
-		addDrawable(sn);
-		for(Node n : sn.getList()) {
-			if (n != null) {
-				if (isPositionInsideGrid(n.getX(), n.getY())) {
-					if (map[n.getX()][n.getY()].getValue() == Value.EMPTY) {
-						updateMap(n.getX(),n.getY(), n);
-					} 
-				} 
-			}
-		}
-	}
-
-	/**
-	 * Method to check whether position is inside grid or not
-	 * @param x x coordinate to check
-	 * @param y y coordinate to check
-	 * @return whether position is inside grid or not
-	 */
-	private boolean isPositionInsideGrid(int x, int y) {
-		return (x >= 0 && x < getGridWidth()) && (y >= 0 && y < getGridHeight());
-	}
-
-	/**
-	 * Method to update map in every iteration of the game
-	 * @param x x to update
-	 * @param y y to update
-	 * @param n node to update
-	 */
-	private void updateMap(int x, int y, Node n) {
-		if (isPositionInsideGrid(x, y)) {
-			if(n == null) {
-				map[x][y].setX(x);
-				map[x][y].setY(y);
-				map[x][y].setHead(false);
-				map[x][y].setValue(Value.EMPTY);
-			}
-			else {
-				map[x][y] = n;
-			}
-		}
-	}
-
-	/**
-	 * To get node at a given coordinate
-	 * @param x coordinate to get node
-	 * @param y coordinate to get node
-	 * @return the node that is at a a given coordinate
-	 */
-	private Node getNodeAtPosition(int x, int y) {
-		if (!isPositionInsideGrid(x, y)) {
-			// check node class for this speacial case
-			return new Node("outsideGrid");
-		}
-		return map[x][y];
-	}
-
-	/**
-	 * To get a node at a given direction from the head node
-	 * @param x coordinate of the head node
-	 * @param y coordinate of the head node
-	 * @param direction direction to get node
-	 * @return the node at the given direction
-	 */
-	private Node getNodeAtDirection(int x, int y, Direction direction) {
-		if (direction == null) {
-			return null;
-		}
-		int xTarget = x;
-		int yTarget = y;
-		if (direction == Direction.UP) {
-			yTarget--;
-		} else if (direction == Direction.DOWN) {
-			yTarget++;
-		} else if (direction == Direction.LEFT) {
-			xTarget--;
-		} else if (direction == Direction.RIGHT) {
-			xTarget++;
-		}
-		return getNodeAtPosition(xTarget, yTarget);
-	}
-
-	/**
-	 * To create most of the information about environment for the head node of the snake
-	 * @param snake snake which the information will be about
-	 * @return the environment information about the given snake
-	 */
-	private LocalInformation createLocalInformationForSnake(Snake snake) {
-		//head node it taken here
-		Node n = snake.getList().getFirst();
-		int x =n.getX();
-		int y = n.getY();
-		HashMap<Direction, Node> nodes = new HashMap<>();
-		nodes.put(Direction.UP, getNodeAtPosition(x, y - 1));
-		nodes.put(Direction.DOWN, getNodeAtPosition(x, y + 1));
-		nodes.put(Direction.LEFT, getNodeAtPosition(x - 1, y));
-		nodes.put(Direction.RIGHT, getNodeAtPosition(x + 1, y));
-
-		ArrayList<Direction> freeDirections = new ArrayList<>();
-		if (nodes.containsKey(Direction.UP) && isPositionInsideGrid(x, y - 1)) {
-			if(nodes.get(Direction.UP).getValue() == Value.EMPTY) freeDirections.add(Direction.UP);
-		}
-		if (nodes.containsKey(Direction.DOWN)&& isPositionInsideGrid(x, y + 1)) {
-			if(nodes.get(Direction.DOWN).getValue() == Value.EMPTY) freeDirections.add(Direction.DOWN);
-		}
-		if (nodes.containsKey(Direction.LEFT) && isPositionInsideGrid(x - 1, y)) {
-			if(nodes.get(Direction.LEFT).getValue() == Value.EMPTY) freeDirections.add(Direction.LEFT);
-		}
-		if (nodes.containsKey(Direction.RIGHT)&& isPositionInsideGrid(x + 1, y)) {
-			if(nodes.get(Direction.RIGHT).getValue() == Value.EMPTY) freeDirections.add(Direction.RIGHT);
-		}
-
-		return new LocalInformation(getGridWidth(), getGridHeight(), nodes, freeDirections, food, n);
-	}
-
-	/**
-	 * A random x coordinate generator method
-	 * @return a random x coordinate - integer
-	 */
-	public int getX() {
-		return (int) (Math.random() * getGridWidth());
-	}
-	/**
-	 * A random y coordinate generator method
-	 * @return a random x coordinate - integer
-	 */
-	public int getY() {
-		return (int) (Math.random() * getGridWidth());
-	}
-
-}
+package worker;
+
+import jdk.jfr.FlightRecorder;
+
+import assets.Node;
+import assets.Snake;
+import assets.Food;
+import game.Frame;
+import game.GridGame;
+import ui.DensityMap;
+import ui.GridPanel;
+import ui.Viewport;
+/**
+ * Most important and clever class of the game and project
+ * Arranges most of the game
+ * @author Burak
+ *
+ */
+public class SnakeSimulator extends GridGame {
+	/**
+	 * Occupancy grid to keep map in a right way, one byte for each cell that has memory
+	 */
+	private WorldGrid map;
+	/**
+	 * Food of the game, indexed by position
+	 */
+	private FoodIndex foods;
+	/**
+	 * Number of food items kept on the map
+	 */
+	private int foodCount = 1;
+	/**
+	 * Number of food items that may spawn in one tick while there are fewer than foodCount
+	 */
+	private int foodPerTick = 1;
+	/**
+	 * Snakes in the game is kept in this field, as arrays of numbers, a snake is named by its index
+	 */
+	private SnakePopulation snakes;
+	/**
+	 * Distance field to the food, null if snakes do not use it
+	 */
+	private FlowField flowField;
+	/**
+	 * Actions chosen in the current tick, index i belongs to snake i
+	 */
+	private final ActionBuffer decisions = new ActionBuffer();
+	/**
+	 * Surroundings of the snakes in the current tick
+	 */
+	private final SnakeSensors sensors = new SnakeSensors();
+	/**
+	 * Way the snakes choose their actions
+	 */
+	private DecisionStrategy strategy = new GreedyStrategy();
+	/**
+	 * Number of ticks done
+	 */
+	private long tick;
+	/**
+	 * Random numbers of the game, food spawns with it and every added snake gets a stream split from it
+	 */
+	private RandomSource random = new RandomSource(System.nanoTime());
+	/**
+	 * Writes every tick into a replay file, null if the game is not recorded
+	 */
+	private ReplayRecorder recorder;
+	/**
+	 * Server that streams the ticks to spectators, null if there is none
+	 */
+	private SpectatorServer spectators;
+	/**
+	 * Gives the actions and the food of every tick while a replay file is played, null otherwise
+	 */
+	private ReplayPlayer player;
+	/**
+	 * Timings and counters of the ticks
+	 */
+	private final SimulationMetrics metrics = new SimulationMetrics(this);
+	/**
+	 * Number of each kind of action executed in the current tick
+	 */
+	private int moves, eats, reproductions, stays;
+
+	/**
+	 * Worlds with more cells than this are kept in a ChunkedGrid unless told otherwise, a CellGrid of this size
+	 * already costs 150 MB
+	 */
+	private static final long DENSE_CELL_LIMIT = 1 << 24;
+
+	/**
+	 * Constructor for the snake simulator game. Also, calls the constructor of the GridGame class
+	 * @param gridWidth Width of the game
+	 * @param gridHeight Height of the game
+	 * @param gridSquareSize Size of the one square
+	 * @param frameRate rate of the game
+	 */
+	public SnakeSimulator(int gridWidth, int gridHeight, int gridSquareSize, int frameRate) {
+		super(gridWidth, gridHeight, gridSquareSize, frameRate);
+		initialize(gridWidth, gridHeight, (long) gridWidth * gridHeight > DENSE_CELL_LIMIT);
+		// a tick changes only a few cells, so only those are drawn again
+		enableIncrementalRendering(this::drawCell);
+		enableDensityView(this::collectDensity);
+	}
+
+	/**
+	 * Constructor for the headless snake simulator, nothing is drawn and it is driven by a HeadlessRunner.
+	 * Big worlds are kept in chunks that exist only where there are snakes or food.
+	 * @param gridWidth Width of the game
+	 * @param gridHeight Height of the game
+	 */
+	public SnakeSimulator(int gridWidth, int gridHeight) {
+		this(gridWidth, gridHeight, (long) gridWidth * gridHeight > DENSE_CELL_LIMIT);
+	}
+
+	/**
+	 * Constructor for the headless snake simulator with a chosen kind of map
+	 * @param gridWidth Width of the game
+	 * @param gridHeight Height of the game
+	 * @param chunked true for a ChunkedGrid, which costs memory only where there are snakes or food,
+	 * false for a CellGrid, which costs 9 bytes for each cell and picks food cells faster on a crowded map
+	 */
+	public SnakeSimulator(int gridWidth, int gridHeight, boolean chunked) {
+		super(gridWidth, gridHeight);
+		initialize(gridWidth, gridHeight, chunked);
+	}
+
+	/**
+	 * Creates the map and the snake list, common part of the constructors
+	 * @param gridWidth Width of the game
+	 * @param gridHeight Height of the game
+	 * @param chunked whether the map is a ChunkedGrid
+	 */
+	private void initialize(int gridWidth, int gridHeight, boolean chunked) {
+		map = chunked ? new ChunkedGrid(gridWidth, gridHeight) : new CellGrid(gridWidth, gridHeight);
+		snakes = new SnakePopulation();
+		// snakes have no drawables of their own either
+		addDrawable(snakes);
+		foods = new FoodIndex(gridWidth, gridHeight);
+		// food has no drawable of its own, all of it is drawn by this one
+		addDrawable(panel -> {
+			for (int i = 0; i < foods.size(); i++) {
+				Food.draw(panel, map.cellX(foods.get(i)), map.cellY(foods.get(i)));
+			}
+		});
+	}
+
+
+	@Override
+	protected void timerTick() {
+		// a played replay decides everything, after its end nothing happens
+		if (player != null && !player.beginTick()) {
+			return;
+		}
+		if (recorder != null) {
+			recorder.beginTick();
+		}
+		if (spectators != null) {
+			spectators.beginTick();
+		}
+		long start = System.nanoTime();
+		long sensed = start;
+		// snakes born in this tick are added to the end of the list and act in the next tick
+		int count = snakes.getCount();
+		decisions.reset(count);
+		if (player != null) {
+			player.readActions(decisions, count);
+		} else {
+			if (flowField != null) {
+				flowField.update(map);
+			}
+			sensors.update(map, foods, flowField, snakes, count);
+			sensed = System.nanoTime();
+			// first phase, every snake decides on the same map, nothing is changed
+			strategy.decide(sensors, decisions);
+		}
+		if (recorder != null) {
+			recorder.recordActions(decisions, count);
+		}
+		long decided = System.nanoTime();
+		// second phase, actions are executed in list order, so conflicts are always resolved the same way
+		moves = eats = reproductions = stays = 0;
+		for (int i = 0; i < count; i++) {
+			apply(i, decisions.getAction(i));
+		}
+		long applied = System.nanoTime();
+		// eaten food is replaced after the tick, a full board has no place for it and tries again next tick
+		for (int i = 0; i < foodPerTick && foods.size() < foodCount; i++) {
+			if (!spawnFood()) {
+				break;
+			}
+		}
+		long fed = System.nanoTime();
+		metrics.recordTick(count, sensed - start, decided - sensed, applied - decided, fed - applied,
+				moves, eats, reproductions, stays);
+		// an event object kept through the tick costs more than the tick of a small world, so it is created
+		// afterwards and only if the flight recorder has ever been started
+		if (FlightRecorder.isInitialized()) {
+			TickEvent event = new TickEvent();
+			if (event.shouldCommit()) {
+				event.tick = tick;
+				event.snakes = count;
+				event.tickTime = fed - start;
+				event.senseTime = sensed - start;
+				event.decideTime = decided - sensed;
+				event.applyTime = applied - decided;
+				event.foodTime = fed - applied;
+				event.moves = moves;
+				event.eats = eats;
+				event.reproductions = reproductions;
+				event.stays = stays;
+				event.commit();
+			}
+		}
+		tick++;
+		if (recorder != null) {
+			recorder.endTick();
+		}
+		if (spectators != null) {
+			spectators.endTick();
+		}
+	}
+
+	/**
+	 * Executes the action of a snake. Actions were chosen on the map at the beginning of the tick,
+	 * so a snake earlier in the list may have taken the target cell in the meantime, then the snake stays.
+	 * A move into a cell with food becomes an eat. A snake of a single part cannot divide, it stays instead, as in
+	 * WorldSnapshot; strategies are pluggable and may ask for it anyway.
+	 * @param snake index of the snake to act
+	 * @param action chosen action of the snake
+	 */
+	private void apply(int snake, Action action) {
+		if (action == null || action.getType() == Action.Type.STAY
+				|| action.getType() == Action.Type.REPRODUCE && snakes.getSize(snake) < 2) {
+			// STAY
+			stays++;
+		} else if (action.getType() == Action.Type.REPRODUCE) {
+			reproductions++;
+			// REPRODUCE, newborn is the tail half of the snake, so it never needs new space
+			// snakes are born in the same order for the same seed, so they get the same streams
+			int child = snakes.reproduce(snake, random.split());
+			// the old tail of the parent is the head of the newborn now
+			setCell(snakes.getHeadX(child), snakes.getHeadY(child), WorldGrid.HEAD);
+		} else {
+			int headX = snakes.getHeadX(snake);
+			int headY = snakes.getHeadY(snake);
+			int x = headX + action.getDirection().getDx();
+			int y = headY + action.getDirection().getDy();
+			byte target = isPositionInsideGrid(x, y) ? map.get(x, y) : WorldGrid.BODY;
+			if (target == WorldGrid.EMPTY && action.getType() == Action.Type.MOVE) {
+				// moving snake's old tail is emptied here, old head becomes body
+				setCell(headX, headY, WorldGrid.BODY);
+				setCell(snakes.getTailX(snake), snakes.getTailY(snake), WorldGrid.EMPTY);
+				snakes.move(snake, action.getDirection());
+				setCell(x, y, WorldGrid.HEAD);
+				moves++;
+			} else if (target == WorldGrid.FOOD) {
+				// EAT
+				setCell(headX, headY, WorldGrid.BODY);
+				snakes.eat(snake, action.getDirection());
+				setCell(x, y, WorldGrid.HEAD);
+				foods.remove(x, y);
+				eats++;
+			} else {
+				// target is taken by another snake in this tick
+				stays++;
+			}
+		}
+	}
+
+	/**
+	 * Method to add food, it is ignored if its position is not empty
+	 * @param food food to add the game
+	 */
+	public void addFood(Food food) {
+		Node n = food.getFood();
+		if (isPositionInsideGrid(n.getX(), n.getY())) {
+			if (map.get(n.getX(), n.getY()) == WorldGrid.EMPTY) {
+				foods.add(n.getX(), n.getY());
+				setCell(n.getX(), n.getY(), WorldGrid.FOOD);
+			} 
+		} 
+	}
+
+	/**
+	 * Sets how much food the game keeps. Eaten food is replaced after each tick, at most perTick at once.
+	 * @param count number of food items kept on the map
+	 * @param perTick number of food items that may spawn in one tick
+	 */
+	public void setFoodSupply(int count, int perTick) {
+		this.foodCount = count;
+		this.foodPerTick = perTick;
+	}
+
+
+	/**
+	 * Method to spawn a new food at a random empty position of the map.
+	 * @return false if the board is full and no food is spawned
+	 */
+	public boolean spawnFood() {
+		long cell = player != null ? player.nextFood() : map.randomFreeCell(random);
+		if (cell < 0) {
+			return false;
+		}
+		if (map.get(map.cellX(cell), map.cellY(cell)) != WorldGrid.EMPTY) {
+			throw new IllegalStateException("Replay does not match the game, food spawns on a full cell");
+		}
+		if (recorder != null) {
+			recorder.recordFood(cell);
+		}
+		// the cell is known to be empty, no Food object is needed
+		foods.add(map.cellX(cell), map.cellY(cell));
+		setCell(map.cellX(cell), map.cellY(cell), WorldGrid.FOOD);
+		return true;
+	}
+
+	/**
+	 * Method to add a snake to the game. The snake is copied, changing it afterwards does not change the game.
+	 * @param sn snake to add
+	 */
+	public void addSnake(Snake sn) {
+		// snakes are added in the same order for the same seed, so they get the same streams
+		int snake = snakes.add(sn, random.split());
+		for(int i = 0; i < snakes.getSize(snake); i++) {
+			int x = snakes.getX(snake, i);
+			int y = snakes.getY(snake, i);
+			if (isPositionInsideGrid(x, y)) {
+				if (map.get(x, y) == WorldGrid.EMPTY) {
+					setCell(x, y, i == 0 ? WorldGrid.HEAD : WorldGrid.BODY);
+				} 
+			} 
+		}
+	}
+
+	/**
+	 * Changes a cell of the map and marks it for the next redraw
+	 * @param x x coordinate of the cell
+	 * @param y y coordinate of the cell
+	 * @param state new state of the cell
+	 */
+	private void setCell(int x, int y, byte state) {
+		map.set(x, y, state);
+		if (spectators != null) {
+			spectators.cellChanged(map.index(x, y), state);
+		}
+		markDirty(x, y);
+	}
+
+	/**
+	 * Draws the current content of a single cell for incremental rendering, the cell is already cleared
+	 * @param panel panel to draw on
+	 * @param x x position of the cell
+	 * @param y y position of the cell
+	 */
+	private void drawCell(GridPanel panel, int x, int y) {
+		byte state = map.get(x, y);
+		if (state == WorldGrid.HEAD || state == WorldGrid.BODY) {
+			Snake.drawPart(panel, x, y, state == WorldGrid.HEAD);
+		} else if (state == WorldGrid.FOOD) {
+			Food.draw(panel, x, y);
+		}
+	}
+
+	/**
+	 * Adds the occupied blocks of the map behind a zoomed out view, they are counted by the map already
+	 * @param density density map to fill, it is empty and knows the viewport
+	 */
+	private void collectDensity(DensityMap density) {
+		Viewport v = density.getViewport();
+		map.visitBlocks(v.getFirstX(), v.getFirstY(), v.getFirstX() + v.getVisibleWidth(),
+				v.getFirstY() + v.getVisibleHeight(), density::add);
+	}
+
+	/**
+	 * Starts the game loop with separate simulation and display rates, the panel shows copies of the visible
+	 * part of the map, see GridGame.start(int, int, Supplier)
+	 * @param tickRate number of ticks per second
+	 * @param frameRate number of frames drawn per second
+	 */
+	public void start(int tickRate, int frameRate) {
+		start(tickRate, frameRate, this::captureFrame);
+	}
+
+	/**
+	 * Captures the visible part of the map, called on the simulation thread between ticks
+	 * @return frame of the current state
+	 */
+	private Frame captureFrame() {
+		return new GridFrame(map, getGamePanel().getViewport());
+	}
+
+	/**
+	 * Makes snakes follow shortest paths to the food. The distance field costs 8 bytes for each cell and
+	 * a search over the whole map in every tick the map changes, so it is meant for small and medium worlds.
+	 * @param enabled whether snakes use the distance field
+	 * @throws IllegalArgumentException if the world has too many cells for the field
+	 */
+	public void setFlowFieldEnabled(boolean enabled) {
+		flowField = enabled ? new FlowField(getGridWidth(), getGridHeight()) : null;
+	}
+
+	/**
+	 * Changes the way the snakes choose their actions, from the next tick on
+	 * @param strategy the strategy, GreedyStrategy is used by default
+	 */
+	public void setStrategy(DecisionStrategy strategy) {
+		this.strategy = strategy;
+	}
+
+	/**
+	 * Getter for the way the snakes choose their actions
+	 * @return the strategy of the game
+	 */
+	public DecisionStrategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * Getter for the timings and counters of the ticks
+	 * @return metrics of the game, they can be published with register(...)
+	 */
+	public SimulationMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Getter for the number of snakes in the game
+	 * @return snake count
+	 */
+	public int getSnakeCount() {
+		return snakes.getCount();
+	}
+
+	/**
+	 * Getter for a snake of the game
+	 * @param index index of the snake, snakes are kept in the order they are added
+	 * @return a copy of the snake, changing it does not change the game
+	 */
+	public Snake getSnake(int index) {
+		return snakes.toSnake(index);
+	}
+
+	/**
+	 * Copies the map and the snakes into a snapshot, whose forks can be played forward to try out actions.
+	 * It costs a copy of the snakes and of the occupied part of the map, forking it afterwards costs much less.
+	 * @return snapshot of the game as it is now
+	 * @throws IllegalArgumentException if the world is too big for snapshots
+	 */
+	public WorldSnapshot snapshot() {
+		return new WorldSnapshot(map, snakes, foods.size());
+	}
+
+	/**
+	 * Getter for the snakes of the game
+	 * @return snake population of the game
+	 */
+	SnakePopulation getPopulation() {
+		return snakes;
+	}
+
+	/**
+	 * Getter for the number of food items on the map
+	 * @return food count
+	 */
+	public int getFoodCount() {
+		return foods.size();
+	}
+
+	/**
+	 * Getter for the number of food items kept on the map
+	 * @return food count given to setFoodSupply
+	 */
+	int getFoodSupplyCount() {
+		return foodCount;
+	}
+
+	/**
+	 * Getter for the number of food items that may spawn in one tick
+	 * @return food count per tick given to setFoodSupply
+	 */
+	int getFoodSupplyPerTick() {
+		return foodPerTick;
+	}
+
+	/**
+	 * Getter for the number of ticks done
+	 * @return tick count
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Setter for the number of ticks done, used when a saved state is loaded
+	 * @param tick tick count
+	 */
+	void setTick(long tick) {
+		this.tick = tick;
+	}
+
+	/**
+	 * Removes all snakes and food, so that a saved state can be loaded into the game
+	 */
+	void clear() {
+		snakes.clear();
+		map.clear();
+		foods = new FoodIndex(getGridWidth(), getGridHeight());
+		if (flowField != null) {
+			flowField = new FlowField(getGridWidth(), getGridHeight());
+		}
+		if (spectators != null) {
+			spectators.invalidate();
+		}
+		invalidate();
+	}
+
+	/**
+	 * Setter for the recorder that writes every tick, null to stop recording
+	 * @param recorder the recorder
+	 */
+	void setRecorder(ReplayRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	/**
+	 * Setter for the server that streams every tick, null to stop streaming
+	 * @param spectators the server
+	 */
+	void setSpectators(SpectatorServer spectators) {
+		this.spectators = spectators;
+	}
+
+	/**
+	 * Setter for the player that gives the actions and the food of every tick, null to simulate again
+	 * @param player the player
+	 */
+	void setPlayer(ReplayPlayer player) {
+		this.player = player;
+	}
+
+	/**
+	 * Getter for the food index of the game
+	 * @return food index
+	 */
+	FoodIndex getFoodIndex() {
+		return foods;
+	}
+
+	/**
+	 * Getter for the map of the game
+	 * @return occupancy grid of the game
+	 */
+	WorldGrid getMap() {
+		return map;
+	}
+
+	/**
+	 * Method to check whether position is inside grid or not
+	 * @param x x coordinate to check
+	 * @param y y coordinate to check
+	 * @return whether position is inside grid or not
+	 */
+	private boolean isPositionInsideGrid(int x, int y) {
+		return map.isInside(x, y);
+	}
+
+	/**
+	 * Makes the game start again from a seed, a game with the same seed and the same calls runs the same way.
+	 * It should be called before snakes are added, the snakes added before keep their streams.
+	 * @param seed the seed
+	 */
+	public void setSeed(long seed) {
+		random = new RandomSource(seed);
+	}
+
+	/**
+	 * Getter for the random numbers of the game
+	 * @return random source of the game
+	 */
+	RandomSource getRandom() {
+		return random;
+	}
+
+	/**
+	 * Setter for the random numbers of the game, used when a saved state is loaded
+	 * @param random random source of the game
+	 */
+	void setRandom(RandomSource random) {
+		this.random = random;
+	}
+
+	/**
+	 * A random x coordinate generator method
+	 * @return a random x coordinate - integer
+	 */
+	public int getX() {
+		return random.nextInt(getGridWidth());
+	}
+	/**
+	 * A random y coordinate generator method
+	 * @return a random y coordinate - integer
+	 */
+	public int getY() {
+		return random.nextInt(getGridHeight());
+	}
+
+}
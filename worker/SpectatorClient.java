@@ -0,0 +1,180 @@
+package worker;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Watches a game streamed by a SpectatorServer and keeps a copy of its map, see SpectatorServer for the format.
+ * Frames are read one at a time with readFrame(), which waits until the next one has come.
+ * The map is only complete after the first keyframe; the server sends one before any delta.
+ * @author Burak
+ *
+ */
+public class SpectatorClient implements Closeable {
+
+	/**
+	 * Most cells of a map kept in one array, bigger maps are kept in chunks as in SnakeSimulator
+	 */
+	private static final long DENSE_CELL_LIMIT = 1 << 24;
+
+	/**
+	 * Socket to the server
+	 */
+	private final SocketChannel channel;
+	/**
+	 * Bytes read from the socket that are not used yet, between position and limit
+	 */
+	private ByteBuffer in = ByteBuffer.allocate(1 << 16);
+	/**
+	 * Copy of the map of the game
+	 */
+	private final WorldGrid map;
+	/**
+	 * Tick of the last frame
+	 */
+	private long tick = -1;
+	/**
+	 * Number of frames read and the number of keyframes among them
+	 */
+	private long frames, keyframes;
+
+	/**
+	 * Connects to a server and reads the header of the stream
+	 * @param port port of the server on this machine
+	 * @throws IOException if the server cannot be reached or does not send a stream
+	 */
+	public SpectatorClient(int port) throws IOException {
+		channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		in.flip();
+		try {
+			fill(SpectatorServer.HEADER_SIZE);
+			if (in.getInt() != SpectatorServer.MAGIC || in.getInt() != SpectatorServer.VERSION) {
+				throw new IOException("Not a spectator stream");
+			}
+			int width = in.getInt(), height = in.getInt();
+			if (width <= 0 || height <= 0) {
+				throw new IOException("Invalid grid size " + width + "x" + height);
+			}
+			map = (long) width * height > DENSE_CELL_LIMIT ? new ChunkedGrid(width, height)
+					: new CellGrid(width, height);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Makes sure that some bytes are buffered, waits for the socket if they are not
+	 * @param count number of bytes needed
+	 * @throws IOException if the stream ends or the socket is broken
+	 */
+	private void fill(int count) throws IOException {
+		if (in.remaining() >= count) {
+			return;
+		}
+		if (in.capacity() < count) {
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(count, in.capacity() * 2));
+			bigger.put(in);
+			in = bigger;
+		} else {
+			in.compact();
+		}
+		while (in.position() < count) {
+			if (channel.read(in) < 0) {
+				throw new EOFException("Stream ended");
+			}
+		}
+		in.flip();
+	}
+
+	/**
+	 * Reads the next frame and applies it to the map
+	 * @return false if the server closed the stream
+	 * @throws IOException if the socket is broken or the frame is damaged
+	 */
+	public boolean readFrame() throws IOException {
+		try {
+			fill(1);
+		} catch (EOFException e) {
+			return false;
+		}
+		byte type = in.get();
+		long length = 0;
+		for (int shift = 0;; shift += 7) {
+			fill(1);
+			int b = in.get();
+			length |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				break;
+			}
+			if (shift > 28) {
+				throw new IOException("Damaged frame length");
+			}
+		}
+		fill((int) length);
+		ByteBuffer body = in.slice();
+		body.limit((int) length);
+		in.position(in.position() + (int) length);
+		if (type == SpectatorServer.KEYFRAME) {
+			map.clear();
+			keyframes++;
+		} else if (type != SpectatorServer.DELTA) {
+			throw new IOException("Unknown frame type " + type);
+		}
+		tick = ReplayFormat.readVarint(body);
+		long count = ReplayFormat.readVarint(body), cell = 0;
+		for (long i = 0; i < count; i++) {
+			cell += ReplayFormat.readZigzag(body);
+			map.set(map.cellX(cell), map.cellY(cell), body.get());
+		}
+		frames++;
+		return true;
+	}
+
+	/**
+	 * Getter for the copy of the map
+	 * @return the map as of the last frame, it must not be changed
+	 */
+	public WorldGrid getMap() {
+		return map;
+	}
+
+	/**
+	 * Getter for the tick of the last frame
+	 * @return number of ticks the game had done, -1 before the first frame
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Getter for the number of frames read
+	 * @return frame count
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Getter for the number of keyframes read, more than one means that frames were dropped for this spectator
+	 * or the game was loaded again
+	 * @return keyframe count
+	 */
+	public long getKeyframes() {
+		return keyframes;
+	}
+
+	/**
+	 * Disconnects from the server
+	 * @throws IOException if the socket cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,529 @@
+package worker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams a running game to any number of spectators on this machine over TCP, SpectatorClient reads the stream.
+ * A stream starts with a header (magic, version, grid width and height as 4 byte integers), followed by frames in
+ * the record layout of ReplayFormat: a type byte, the length of the body as a varint and the body. The body is the
+ * tick, the number of cells and every cell as the zigzag encoded difference of its index to the previous one
+ * followed by its state. A delta frame has the cells that changed in a tick, in the order they changed; a keyframe
+ * has every cell that is not empty, and the spectator empties its map before it.
+ * Sockets are served by a thread of the server, the game only encodes the frames at the end of a tick and puts
+ * them into the queues of the spectators, so a slow spectator never stalls the tick. A spectator whose queue is
+ * too big loses its queued frames and waits for a keyframe, as does one that has just connected. Keyframes cost
+ * a pass over the occupied part of the map, so they are made at most once every keyframeInterval ticks.
+ * Nothing is encoded while nobody watches.
+ * @author Burak
+ *
+ */
+public class SpectatorServer implements Closeable {
+
+	/**
+	 * First 4 bytes of a stream, "SNKS"
+	 */
+	static final int MAGIC = 0x534E4B53;
+	/**
+	 * Version of the stream format
+	 */
+	static final int VERSION = 1;
+	/**
+	 * Size of the header: magic, version, width and height
+	 */
+	static final int HEADER_SIZE = 16;
+	/**
+	 * Frame types
+	 */
+	static final byte KEYFRAME = 1, DELTA = 2;
+	/**
+	 * Bytes a spectator may have waiting before its frames are dropped
+	 */
+	private static final int MAX_QUEUED_BYTES = 1 << 20;
+
+	/**
+	 * A connected spectator. Its queue is filled by the game and emptied by the server thread.
+	 */
+	private static final class Client {
+
+		/**
+		 * Socket of the spectator
+		 */
+		private final SocketChannel channel;
+		/**
+		 * Key of the socket in the selector
+		 */
+		private final SelectionKey key;
+		/**
+		 * Frames waiting to be sent, every one a view of its own over a frame shared by the spectators
+		 */
+		private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+		/**
+		 * Number of bytes in the queue
+		 */
+		private int queuedBytes;
+		/**
+		 * Whether the spectator needs a keyframe before it can use deltas again
+		 */
+		private boolean needsKeyframe = true;
+		/**
+		 * Frame being written, used only by the server thread
+		 */
+		private ByteBuffer current;
+
+		/**
+		 * Constructor for a spectator
+		 * @param channel socket of the spectator
+		 * @param key key of the socket in the selector
+		 */
+		Client(SocketChannel channel, SelectionKey key) {
+			this.channel = channel;
+			this.key = key;
+		}
+
+		/**
+		 * Queues a frame unless the queue is full, then the queue is emptied and a keyframe is needed.
+		 * A keyframe is queued if nothing else is waiting, however big it is.
+		 * @param frame the frame
+		 * @param keyframe whether it is a keyframe
+		 * @return false if the frame was dropped
+		 */
+		synchronized boolean offer(ByteBuffer frame, boolean keyframe) {
+			if (keyframe ? !queue.isEmpty() && queuedBytes + frame.remaining() > MAX_QUEUED_BYTES
+					: needsKeyframe || queuedBytes + frame.remaining() > MAX_QUEUED_BYTES) {
+				// deltas are worthless after a gap, so everything waiting goes too
+				queue.clear();
+				queuedBytes = 0;
+				needsKeyframe = true;
+				return false;
+			}
+			queue.add(frame.duplicate());
+			queuedBytes += frame.remaining();
+			needsKeyframe = false;
+			return true;
+		}
+
+		/**
+		 * Takes the next frame to write
+		 * @return the frame, null if nothing is waiting
+		 */
+		synchronized ByteBuffer poll() {
+			ByteBuffer frame = queue.poll();
+			if (frame != null) {
+				queuedBytes -= frame.remaining();
+			}
+			return frame;
+		}
+
+		/**
+		 * Getter for the need of a keyframe
+		 * @return true if the spectator waits for a keyframe
+		 */
+		synchronized boolean needsKeyframe() {
+			return needsKeyframe;
+		}
+
+		/**
+		 * Makes the spectator wait for a keyframe, the frames waiting are dropped
+		 */
+		synchronized void invalidate() {
+			queue.clear();
+			queuedBytes = 0;
+			needsKeyframe = true;
+		}
+
+		/**
+		 * Whether there is anything to write
+		 * @return true if a frame is being written or waiting
+		 */
+		synchronized boolean hasPending() {
+			return current != null || !queue.isEmpty();
+		}
+	}
+
+	/**
+	 * Watched game
+	 */
+	private final SnakeSimulator game;
+	/**
+	 * Number of ticks between two keyframes
+	 */
+	private final int keyframeInterval;
+	/**
+	 * Listening socket
+	 */
+	private final ServerSocketChannel server;
+	/**
+	 * Selector of the server thread
+	 */
+	private final Selector selector;
+	/**
+	 * Thread that accepts the spectators and writes the frames
+	 */
+	private final Thread thread;
+	/**
+	 * Connected spectators
+	 */
+	private final List<Client> clients = new CopyOnWriteArrayList<>();
+	/**
+	 * Whether the changes of the current tick are collected, somebody was watching when it began
+	 */
+	private boolean collecting;
+	/**
+	 * Cells changed since the last frame in the order they changed, first changeCount entries are valid
+	 */
+	private long[] changedCells = new long[64];
+	/**
+	 * New state of every changed cell
+	 */
+	private byte[] changedStates = new byte[64];
+	/**
+	 * Number of changes since the last frame
+	 */
+	private int changeCount;
+	/**
+	 * Tick of the last keyframe, a keyframe is due at once at the beginning
+	 */
+	private long lastKeyframe = Long.MIN_VALUE / 2;
+	/**
+	 * Body of the frame being encoded, reused for every frame
+	 */
+	private final ReplayFormat.Buffer body = new ReplayFormat.Buffer();
+	/**
+	 * Frames sent to the queues and frames dropped for slow spectators
+	 */
+	private final AtomicLong framesQueued = new AtomicLong(), framesDropped = new AtomicLong();
+	/**
+	 * Whether the server is running
+	 */
+	private volatile boolean open = true;
+
+	/**
+	 * Starts listening on the loopback address and streaming the game to everyone who connects
+	 * @param game game to stream
+	 * @param port port to listen on, 0 for any free port
+	 * @param keyframeInterval most ticks a new or a slow spectator waits for its keyframe
+	 * @throws IOException if the port cannot be opened
+	 * @throws IllegalArgumentException if the interval is not positive
+	 */
+	public SpectatorServer(SnakeSimulator game, int port, int keyframeInterval) throws IOException {
+		if (keyframeInterval <= 0) {
+			throw new IllegalArgumentException("Invalid keyframe interval " + keyframeInterval);
+		}
+		this.game = game;
+		this.keyframeInterval = keyframeInterval;
+		this.selector = Selector.open();
+		this.server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		thread = new Thread(this::serve, "Spectator server");
+		thread.setDaemon(true);
+		thread.start();
+		game.setSpectators(this);
+	}
+
+	/**
+	 * Getter for the port the server listens on
+	 * @return the port
+	 */
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 * Getter for the number of connected spectators
+	 * @return spectator count
+	 */
+	public int getClientCount() {
+		return clients.size();
+	}
+
+	/**
+	 * Getter for the number of frames given to spectators
+	 * @return frame count, a frame counts once for every spectator
+	 */
+	public long getFramesQueued() {
+		return framesQueued.get();
+	}
+
+	/**
+	 * Getter for the number of frames dropped because spectators were too slow
+	 * @return frame count, a frame counts once for every spectator
+	 */
+	public long getFramesDropped() {
+		return framesDropped.get();
+	}
+
+	/**
+	 * Called by the game at the beginning of a tick, changes are collected only if somebody watches
+	 */
+	void beginTick() {
+		collecting = !clients.isEmpty();
+	}
+
+	/**
+	 * Called by the game when a cell changes, inside or outside of a tick
+	 * @param cell cell index
+	 * @param state new state of the cell
+	 */
+	void cellChanged(long cell, byte state) {
+		if (!collecting) {
+			return;
+		}
+		if (changeCount == changedCells.length) {
+			changedCells = Arrays.copyOf(changedCells, changeCount * 2);
+			changedStates = Arrays.copyOf(changedStates, changeCount * 2);
+		}
+		changedCells[changeCount] = cell;
+		changedStates[changeCount++] = state;
+	}
+
+	/**
+	 * Called by the game when its map was replaced, every spectator needs a keyframe
+	 */
+	void invalidate() {
+		changeCount = 0;
+		lastKeyframe = Long.MIN_VALUE / 2;
+		for (Client client : clients) {
+			client.invalidate();
+		}
+	}
+
+	/**
+	 * Called by the game at the end of a tick, gives the delta of the tick to the spectators that are up to date
+	 * and a keyframe to the others if one is due
+	 */
+	void endTick() {
+		if (!collecting) {
+			changeCount = 0;
+			return;
+		}
+		long tick = game.getTick();
+		ByteBuffer delta = null, keyframe = null;
+		boolean keyframeDue = tick - lastKeyframe >= keyframeInterval, queued = false;
+		for (Client client : clients) {
+			boolean dropped;
+			if (client.needsKeyframe()) {
+				if (!keyframeDue) {
+					continue;
+				}
+				if (keyframe == null) {
+					keyframe = encodeKeyframe(tick);
+					lastKeyframe = tick;
+				}
+				dropped = !client.offer(keyframe, true);
+			} else {
+				if (delta == null) {
+					delta = encodeDelta(tick);
+				}
+				dropped = !client.offer(delta, false);
+			}
+			(dropped ? framesDropped : framesQueued).incrementAndGet();
+			queued |= !dropped;
+		}
+		changeCount = 0;
+		if (queued) {
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Encodes the changes since the last frame
+	 * @param tick current tick
+	 * @return the frame
+	 */
+	private ByteBuffer encodeDelta(long tick) {
+		body.clear();
+		body.writeVarint(tick);
+		body.writeVarint(changeCount);
+		long previous = 0;
+		for (int i = 0; i < changeCount; i++) {
+			body.writeZigzag(changedCells[i] - previous);
+			body.writeByte(changedStates[i]);
+			previous = changedCells[i];
+		}
+		return ByteBuffer.wrap(body.toRecord(DELTA)).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Encodes every cell that is not empty
+	 * @param tick current tick
+	 * @return the frame
+	 */
+	private ByteBuffer encodeKeyframe(long tick) {
+		WorldGrid map = game.getMap();
+		ReplayFormat.Buffer cells = new ReplayFormat.Buffer();
+		int[] count = {0};
+		long[] previous = {0};
+		// only the blocks with something in them are read, so a sparse world is encoded quickly
+		map.visitBlocks(0, 0, map.getWidth(), map.getHeight(), (x, y, size, occupied) -> {
+			for (int cy = y; cy < Math.min(y + size, map.getHeight()); cy++) {
+				for (int cx = x; cx < Math.min(x + size, map.getWidth()); cx++) {
+					byte state = map.get(cx, cy);
+					if (state != WorldGrid.EMPTY) {
+						long cell = map.index(cx, cy);
+						cells.writeZigzag(cell - previous[0]);
+						cells.writeByte(state);
+						previous[0] = cell;
+						count[0]++;
+					}
+				}
+			}
+		});
+		body.clear();
+		body.writeVarint(tick);
+		body.writeVarint(count[0]);
+		ByteBuffer encoded = cells.asByteBuffer();
+		body.writeBytes(encoded.array(), encoded.remaining());
+		return ByteBuffer.wrap(body.toRecord(KEYFRAME)).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Body of the server thread, accepts spectators and writes their frames until the server is closed
+	 */
+	private void serve() {
+		ByteBuffer scratch = ByteBuffer.allocate(256);
+		while (open) {
+			try {
+				selector.select();
+			} catch (IOException e) {
+				break;
+			}
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				if (!key.isValid()) {
+					continue;
+				}
+				if (key.isAcceptable()) {
+					accept();
+				} else {
+					Client client = (Client) key.attachment();
+					try {
+						// spectators send nothing, reading only notices that they left
+						if (key.isReadable()) {
+							scratch.clear();
+							if (client.channel.read(scratch) < 0) {
+								disconnect(client);
+								continue;
+							}
+						}
+						if (key.isWritable()) {
+							write(client);
+						}
+					} catch (IOException e) {
+						disconnect(client);
+					}
+				}
+			}
+			// the game queued frames since the last round, the sockets are watched for room to write them
+			for (Client client : clients) {
+				if (client.key.isValid() && client.hasPending()) {
+					client.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				}
+			}
+		}
+		for (Client client : clients) {
+			disconnect(client);
+		}
+	}
+
+	/**
+	 * Accepts a new spectator and sends it the header, it waits for a keyframe afterwards
+	 */
+	private void accept() {
+		SocketChannel channel = null;
+		try {
+			channel = server.accept();
+			if (channel == null) {
+				return;
+			}
+			channel.configureBlocking(false);
+			SelectionKey key = channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			Client client = new Client(channel, key);
+			key.attach(client);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putInt(game.getGridWidth()).putInt(game.getGridHeight());
+			header.flip();
+			client.current = header;
+			clients.add(client);
+		} catch (IOException e) {
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException ignored) {
+					// the spectator is gone anyway
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes as many frames as the socket takes without waiting
+	 * @param client the spectator
+	 * @throws IOException if the socket is broken
+	 */
+	private void write(Client client) throws IOException {
+		while (true) {
+			if (client.current == null) {
+				client.current = client.poll();
+				if (client.current == null) {
+					client.key.interestOps(SelectionKey.OP_READ);
+					return;
+				}
+			}
+			client.channel.write(client.current);
+			if (client.current.hasRemaining()) {
+				return;
+			}
+			client.current = null;
+		}
+	}
+
+	/**
+	 * Removes a spectator and closes its socket
+	 * @param client the spectator
+	 */
+	private void disconnect(Client client) {
+		clients.remove(client);
+		client.key.cancel();
+		try {
+			client.channel.close();
+		} catch (IOException ignored) {
+			// the spectator is gone anyway
+		}
+	}
+
+	/**
+	 * Stops streaming and disconnects every spectator. It should be called between ticks, like closing a recorder.
+	 * @throws IOException if the listening socket cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		game.setSpectators(null);
+		open = false;
+		selector.wakeup();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		server.close();
+		selector.close();
+	}
+}
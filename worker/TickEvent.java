@@ -0,0 +1,91 @@
+package worker;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of one tick of the simulator, committed after the tick with the time of the tick and of
+ * every phase and what the snakes did, so a recording shows where the time of slow ticks goes.
+ * @author Burak
+ *
+ */
+@Name("snakegame.Tick")
+@Label("Simulation Tick")
+@Category("Snake Game")
+@Description("One tick of the snake simulator")
+class TickEvent extends jdk.jfr.Event {
+
+	/**
+	 * Number of the tick
+	 */
+	@Label("Tick")
+	long tick;
+
+	/**
+	 * Number of snakes that acted
+	 */
+	@Label("Snakes")
+	int snakes;
+
+	/**
+	 * Time of the whole tick
+	 */
+	@Label("Tick Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long tickTime;
+
+	/**
+	 * Time of updating the shared distance field
+	 */
+	@Label("Sense Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long senseTime;
+
+	/**
+	 * Time of the snakes looking around and choosing their actions
+	 */
+	@Label("Decide Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long decideTime;
+
+	/**
+	 * Time of executing the actions
+	 */
+	@Label("Apply Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long applyTime;
+
+	/**
+	 * Time of spawning the eaten food again
+	 */
+	@Label("Food Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long foodTime;
+
+	/**
+	 * Number of executed moves
+	 */
+	@Label("Moves")
+	int moves;
+
+	/**
+	 * Number of executed eats
+	 */
+	@Label("Eats")
+	int eats;
+
+	/**
+	 * Number of executed reproductions
+	 */
+	@Label("Reproductions")
+	int reproductions;
+
+	/**
+	 * Number of snakes that stayed, blocked moves included
+	 */
+	@Label("Stays")
+	int stays;
+}
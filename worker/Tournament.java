@@ -0,0 +1,270 @@
+package worker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import game.Direction;
+import game.HeadlessRunner;
+
+/**
+ * Runs many independent headless games for every point of a parameter sweep and sums up how they ended.
+ * Every game is one fork/join task that creates its own world, runs it to the end and keeps only a few numbers,
+ * so thousands of games need the memory of as many worlds as there are threads.
+ * Game g of every settings is played with the seed seed+g, so settings are compared on the same random numbers,
+ * and the results do not depend on the number of threads or on the order the games finish in.
+ * Snakes never die in this game, so the survival of a game is the share of its snakes that can still move at the
+ * end, the ones with an empty or food cell next to their head or big enough to divide.
+ * @author Burak
+ *
+ */
+public final class Tournament {
+
+	/**
+	 * Places the first snakes and food of a game
+	 */
+	@FunctionalInterface
+	public interface Setup {
+
+		/**
+		 * Fills a new game, the seed, the food supply and the strategy are already set
+		 * @param game empty game of the settings' grid size
+		 * @param settings settings of the game
+		 */
+		void populate(SnakeSimulator game, GameSettings settings);
+	}
+
+	/**
+	 * Summary of the games of one settings
+	 */
+	public static final class Result {
+
+		/**
+		 * Settings the games were played with
+		 */
+		private final GameSettings settings;
+		/**
+		 * Snake count, food eaten and reproductions of the games at their end
+		 */
+		private final LongSummaryStatistics snakes = new LongSummaryStatistics(), eats = new LongSummaryStatistics(),
+				reproductions = new LongSummaryStatistics();
+		/**
+		 * Share of the snakes that can still move at the end of the games
+		 */
+		private final DoubleSummaryStatistics survival = new DoubleSummaryStatistics();
+
+		/**
+		 * Constructor for an empty summary
+		 * @param settings settings the games were played with
+		 */
+		private Result(GameSettings settings) {
+			this.settings = settings;
+		}
+
+		/**
+		 * Getter for the settings
+		 * @return settings the games were played with
+		 */
+		public GameSettings getSettings() {
+			return settings;
+		}
+
+		/**
+		 * Getter for the snake counts at the end of the games
+		 * @return count, average, smallest and biggest number of snakes
+		 */
+		public LongSummaryStatistics getSnakes() {
+			return snakes;
+		}
+
+		/**
+		 * Getter for the food eaten in the games
+		 * @return count, average, smallest and biggest number of eats of a game
+		 */
+		public LongSummaryStatistics getEats() {
+			return eats;
+		}
+
+		/**
+		 * Getter for the reproductions in the games
+		 * @return count, average, smallest and biggest number of reproductions of a game
+		 */
+		public LongSummaryStatistics getReproductions() {
+			return reproductions;
+		}
+
+		/**
+		 * Getter for the survival of the games
+		 * @return count, average, smallest and biggest share of the snakes that can still move, from 0 to 1
+		 */
+		public DoubleSummaryStatistics getSurvival() {
+			return survival;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d games, snakes %.1f [%d, %d], eats %.1f, reproductions %.1f, survival %.3f",
+					settings, snakes.getCount(), snakes.getAverage(), snakes.getMin(), snakes.getMax(),
+					eats.getAverage(), reproductions.getAverage(), survival.getAverage());
+		}
+	}
+
+	/**
+	 * Points of the sweep
+	 */
+	private final List<GameSettings> settings;
+	/**
+	 * Number of games played with every settings
+	 */
+	private final int games;
+	/**
+	 * Seed of the first game of every settings
+	 */
+	private final long seed;
+	/**
+	 * Way the games are filled
+	 */
+	private final Setup setup;
+	/**
+	 * Snake count, eats and reproductions at the end of every game, game g of settings s is at s*games+g
+	 */
+	private long[] snakes, eats, reproductions;
+	/**
+	 * Survival of every game, in the same order
+	 */
+	private double[] survival;
+
+	/**
+	 * Constructor for a tournament
+	 * @param settings points of the sweep, each is played games times
+	 * @param games number of games of every settings
+	 * @param seed seed of the first game of every settings, the next ones get the following seeds
+	 * @param setup way the games are filled
+	 * @throws IllegalArgumentException if there are no games to play
+	 */
+	public Tournament(List<GameSettings> settings, int games, long seed, Setup setup) {
+		if (settings.isEmpty() || games <= 0 || (long) settings.size() * games > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid tournament of " + settings.size() + "x" + games + " games");
+		}
+		this.settings = Collections.unmodifiableList(new ArrayList<>(settings));
+		this.games = games;
+		this.seed = seed;
+		this.setup = setup;
+	}
+
+	/**
+	 * Plays every game and sums up the games of every settings
+	 * @param parallelism number of threads of the games, usually the number of cores; big populations sense and
+	 *                    decide in parallel on the same threads, so it bounds the whole run
+	 * @return one result for every settings, in the order of the settings
+	 */
+	public List<Result> run(int parallelism) {
+		int total = settings.size() * games;
+		snakes = new long[total];
+		eats = new long[total];
+		reproductions = new long[total];
+		survival = new double[total];
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new GameTask(0, total));
+		} finally {
+			pool.shutdown();
+		}
+		// games are summed up in their order after all of them ended, so the results are always the same
+		List<Result> results = new ArrayList<>();
+		for (int s = 0; s < settings.size(); s++) {
+			Result result = new Result(settings.get(s));
+			for (int i = s * games; i < (s + 1) * games; i++) {
+				result.snakes.accept(snakes[i]);
+				result.eats.accept(eats[i]);
+				result.reproductions.accept(reproductions[i]);
+				result.survival.accept(survival[i]);
+			}
+			results.add(result);
+		}
+		return results;
+	}
+
+	/**
+	 * Plays one game from the beginning to the end and keeps how it ended
+	 * @param index index of the game, settings index times games plus game number
+	 */
+	private void play(int index) {
+		GameSettings settings = this.settings.get(index / games);
+		SnakeSimulator game = new SnakeSimulator(settings.getGridSize(), settings.getGridSize());
+		game.setSeed(seed + index % games);
+		game.setFoodSupply(settings.getFoodCount(), settings.getFoodCount());
+		game.setFlowFieldEnabled(settings.isFlowField());
+		game.setStrategy(new GreedyStrategy(settings.getDividingSize()));
+		setup.populate(game, settings);
+		new HeadlessRunner(game).run(settings.getTicks(), 0);
+		SimulationMetrics metrics = game.getMetrics();
+		snakes[index] = game.getSnakeCount();
+		eats[index] = metrics.getEats();
+		reproductions[index] = metrics.getReproductions();
+		survival[index] = survival(game, settings.getDividingSize());
+	}
+
+	/**
+	 * Share of the snakes of a game that can still move, eat or divide
+	 * @param game game at its end
+	 * @param dividingSize size from which the snakes reproduce
+	 * @return number from 0 to 1, 0 if there are no snakes
+	 */
+	private static double survival(SnakeSimulator game, int dividingSize) {
+		SnakePopulation population = game.getPopulation();
+		WorldGrid map = game.getMap();
+		int alive = 0;
+		for (int h = 0; h < population.getCount(); h++) {
+			if (population.getSize(h) >= dividingSize) {
+				alive++;
+				continue;
+			}
+			for (Direction dir : Direction.values()) {
+				int x = population.getHeadX(h) + dir.getDx(), y = population.getHeadY(h) + dir.getDy();
+				if (map.isInside(x, y) && (map.get(x, y) == WorldGrid.EMPTY || map.get(x, y) == WorldGrid.FOOD)) {
+					alive++;
+					break;
+				}
+			}
+		}
+		return population.getCount() == 0 ? 0 : (double) alive / population.getCount();
+	}
+
+	/**
+	 * Task that plays a range of games, ranges of more than one game are split in halves
+	 */
+	private final class GameTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Range of the games, from inclusive to exclusive
+		 */
+		private final int from, to;
+
+		/**
+		 * Constructor for the task
+		 * @param from index of the first game
+		 * @param to index after the last game
+		 */
+		GameTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				play(from);
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new GameTask(from, middle), new GameTask(middle, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package worker;
+
+/**
+ * Occupancy map of the game, one state for every cell. CellGrid keeps every cell in one array and ChunkedGrid
+ * keeps only the parts of the world that have something in them, the game works the same on both.
+ * Cells are also named by their index y*width+x, which is a long since a sparse world may have more cells than
+ * an int can count.
+ * @author Burak
+ *
+ */
+public interface WorldGrid {
+
+	/**
+	 * Cell states kept in the grid
+	 */
+	byte EMPTY = 0, BODY = 1, HEAD = 2, FOOD = 3;
+
+	/**
+	 * Side of the square blocks the grids count the occupied cells of, for the zoomed out view
+	 */
+	int BLOCK_SIZE = 8;
+
+	/**
+	 * Told the occupied cell count of blocks
+	 */
+	@FunctionalInterface
+	interface BlockVisitor {
+
+		/**
+		 * Called for a block that has occupied cells
+		 * @param x x coordinate of the top left cell of the block
+		 * @param y y coordinate of the top left cell of the block
+		 * @param size side of the block in cells
+		 * @param count number of cells of the block that are not empty
+		 */
+		void visit(int x, int y, int size, int count);
+	}
+
+	/**
+	 * Getter for the width of the grid
+	 * @return number of cells along the width
+	 */
+	int getWidth();
+
+	/**
+	 * Getter for the height of the grid
+	 * @return number of cells along the height
+	 */
+	int getHeight();
+
+	/**
+	 * Method to check whether position is inside grid or not
+	 * @param x x coordinate to check
+	 * @param y y coordinate to check
+	 * @return whether position is inside grid or not
+	 */
+	default boolean isInside(int x, int y) {
+		return x >= 0 && x < getWidth() && y >= 0 && y < getHeight();
+	}
+
+	/**
+	 * Getter for the state of a cell, the position must be inside the grid.
+	 * Any number of threads may read at the same time while nobody sets.
+	 * @param x x coordinate of the cell
+	 * @param y y coordinate of the cell
+	 * @return one of EMPTY, BODY, HEAD or FOOD
+	 */
+	byte get(int x, int y);
+
+	/**
+	 * Setter for the state of a cell, the position must be inside the grid
+	 * @param x x coordinate of the cell
+	 * @param y y coordinate of the cell
+	 * @param state one of EMPTY, BODY, HEAD or FOOD
+	 */
+	void set(int x, int y, byte state);
+
+	/**
+	 * Empties every cell
+	 */
+	void clear();
+
+	/**
+	 * Getter for the version of the grid
+	 * @return a number that changes whenever a cell is set
+	 */
+	long getVersion();
+
+	/**
+	 * Getter for the number of empty cells
+	 * @return empty cell count, zero if the board is full
+	 */
+	long getFreeCount();
+
+	/**
+	 * Picks a uniformly random empty cell
+	 * @param random random numbers to pick with
+	 * @return index of the cell, or -1 if the board is full
+	 */
+	long randomFreeCell(RandomSource random);
+
+	/**
+	 * Makes random picks depend only on which cells are empty and not on the order they became empty in,
+	 * so a game loaded from a checkpoint picks the same cells as the saved one
+	 */
+	void sortFreeCells();
+
+	/**
+	 * Gives the occupied cell count of every block of BLOCK_SIZE cells that has something in it and touches
+	 * a rectangle. Blocks are visited in no particular order; the cost follows the number of blocks, not the
+	 * number of cells.
+	 * @param x0 left column of the rectangle
+	 * @param y0 top row of the rectangle
+	 * @param x1 column after the right edge
+	 * @param y1 row after the bottom edge
+	 * @param visitor told about every block
+	 */
+	void visitBlocks(int x0, int y0, int x1, int y1, BlockVisitor visitor);
+
+	/**
+	 * Copies the states of a rectangle of cells, row by row, for drawing a frame on another thread
+	 * @param x left column of the rectangle
+	 * @param y top row of the rectangle
+	 * @param width width of the rectangle, it must be inside the grid
+	 * @param height height of the rectangle, it must be inside the grid
+	 * @return new array with one byte for each cell of the rectangle
+	 */
+	byte[] copyCells(int x, int y, int width, int height);
+
+	/**
+	 * Index of a cell
+	 * @param x x coordinate of the cell
+	 * @param y y coordinate of the cell
+	 * @return the cell index
+	 */
+	default long index(int x, int y) {
+		return (long) y * getWidth() + x;
+	}
+
+	/**
+	 * X coordinate of a cell index
+	 * @param cell index of the cell
+	 * @return x coordinate
+	 */
+	default int cellX(long cell) {
+		return (int) (cell % getWidth());
+	}
+
+	/**
+	 * Y coordinate of a cell index
+	 * @param cell index of the cell
+	 * @return y coordinate
+	 */
+	default int cellY(long cell) {
+		return (int) (cell / getWidth());
+	}
+}
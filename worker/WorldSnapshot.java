@@ -0,0 +1,473 @@
+package worker;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import game.Direction;
+
+/**
+ * State of a world that can be forked cheaply and played forward without the game, for strategies that look
+ * ahead by trying hypothetical futures. The map is kept in chunks of 64x64 cells and the snakes in blocks of 64,
+ * and a fork shares all of them with its parent: it copies only the tables of the chunks and blocks, a pointer
+ * for every 4096 cells and every 64 snakes. Whichever of the two changes a shared chunk, block or snake body first
+ * copies it, so forks never see each other's changes.
+ * Every snapshot has an id, and every chunk, block and body remembers the id of the snapshot that made it; a
+ * snapshot changes only what carries its own id. Forking gives the parent a new id as well, so both of them copy
+ * what they shared before writing it.
+ * Actions are applied with the rules of SnakeSimulator, but no food is spawned and newborn snakes get no random
+ * numbers. A snapshot may be forked by several threads at once as long as nobody changes it in the meantime,
+ * every fork may then be played by its own thread.
+ * @author Burak
+ *
+ */
+public final class WorldSnapshot {
+
+	/**
+	 * Log of the side length of a chunk
+	 */
+	private static final int CHUNK_BITS = 6;
+	/**
+	 * Mask of the position of a cell inside its chunk
+	 */
+	private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+	/**
+	 * Most chunks a snapshot may have, forking copies a table of this size
+	 */
+	private static final int MAX_CHUNKS = 1 << 20;
+	/**
+	 * Log of the number of snakes of a block
+	 */
+	private static final int BLOCK_BITS = 6;
+	/**
+	 * Mask of the position of a snake inside its block
+	 */
+	private static final int BLOCK_MASK = (1 << BLOCK_BITS) - 1;
+	/**
+	 * Slots of a body array before its ring buffer: the id of its owner, then the size and the head slot
+	 */
+	private static final int OWNER = 0, SHAPE = 1, PARTS = 2;
+	/**
+	 * Next id to give to a snapshot, 0 is never given so that chunks nobody made are owned by nobody
+	 */
+	private static final AtomicLong NEXT_ID = new AtomicLong(1);
+	/**
+	 * Directions in ordinal order, values() creates a new array at every call
+	 */
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	/**
+	 * Width and height of the grid
+	 */
+	private final int width, height;
+	/**
+	 * Number of chunks along the width
+	 */
+	private final int chunksX;
+	/**
+	 * Id of the snapshot, only chunks, blocks and bodies that carry it are changed in place
+	 */
+	private volatile long id = NEXT_ID.getAndIncrement();
+	/**
+	 * Cells of every chunk row by row, chunk row in the upper and chunk column in the lower part of the index,
+	 * null for chunks that are completely empty
+	 */
+	private byte[][] chunks;
+	/**
+	 * Id of the snapshot that made every chunk
+	 */
+	private long[] chunkOwners;
+	/**
+	 * Bodies of the snakes in blocks of 64. A body is an array of the owner id, the size in the upper and the head
+	 * slot in the lower half, and a ring buffer of a power of two slots with the parts packed as in
+	 * SnakePopulation, part k in slot (head + k) & (slots - 1)
+	 */
+	private long[][][] blocks;
+	/**
+	 * Id of the snapshot that made every block
+	 */
+	private long[] blockOwners;
+	/**
+	 * Number of snakes
+	 */
+	private int snakeCount;
+	/**
+	 * Number of food on the map
+	 */
+	private int foodCount;
+
+	/**
+	 * Constructor for a snapshot of a game, the map and the snakes are copied
+	 * @param map map of the game
+	 * @param snakes snakes of the game
+	 * @param foodCount number of food on the map
+	 * @throws IllegalArgumentException if the map has too many chunks for a snapshot
+	 */
+	WorldSnapshot(WorldGrid map, SnakePopulation snakes, int foodCount) {
+		this.width = map.getWidth();
+		this.height = map.getHeight();
+		this.chunksX = (width + CHUNK_MASK) >>> CHUNK_BITS;
+		long chunkCount = (long) chunksX * ((height + CHUNK_MASK) >>> CHUNK_BITS);
+		if (chunkCount > MAX_CHUNKS) {
+			throw new IllegalArgumentException("Grid of " + width + "x" + height + " is too big for snapshots");
+		}
+		chunks = new byte[(int) chunkCount][];
+		chunkOwners = new long[(int) chunkCount];
+		// only the blocks with something in them are read, so a sparse world is copied quickly
+		map.visitBlocks(0, 0, width, height, (x, y, size, count) -> {
+			for (int cy = y; cy < Math.min(y + size, height); cy++) {
+				for (int cx = x; cx < Math.min(x + size, width); cx++) {
+					byte state = map.get(cx, cy);
+					if (state != WorldGrid.EMPTY) {
+						set(cx, cy, state);
+					}
+				}
+			}
+		});
+		blocks = new long[Math.max(1, (snakes.getCount() + BLOCK_MASK) >>> BLOCK_BITS)][][];
+		blockOwners = new long[blocks.length];
+		for (int h = 0; h < snakes.getCount(); h++) {
+			long[] body = newBody(snakes.getSize(h));
+			for (int i = 0; i < snakes.getSize(h); i++) {
+				body[PARTS + i] = pack(snakes.getX(h, i), snakes.getY(h, i));
+			}
+			addSnake(body);
+		}
+		this.foodCount = foodCount;
+	}
+
+	/**
+	 * Constructor for a fork, the tables of the parent are copied and everything else is shared
+	 * @param parent snapshot to fork
+	 */
+	private WorldSnapshot(WorldSnapshot parent) {
+		this.width = parent.width;
+		this.height = parent.height;
+		this.chunksX = parent.chunksX;
+		this.chunks = parent.chunks.clone();
+		this.chunkOwners = parent.chunkOwners.clone();
+		this.blocks = parent.blocks.clone();
+		this.blockOwners = parent.blockOwners.clone();
+		this.snakeCount = parent.snakeCount;
+		this.foodCount = parent.foodCount;
+	}
+
+	/**
+	 * Makes a copy of the snapshot that can be changed independently of it
+	 * @return the fork, it shares everything with this snapshot until one of them changes it
+	 */
+	public WorldSnapshot fork() {
+		WorldSnapshot fork = new WorldSnapshot(this);
+		// the parent does not own what it shares with the fork any more
+		id = NEXT_ID.getAndIncrement();
+		return fork;
+	}
+
+	/**
+	 * Getter for the width of the grid
+	 * @return number of cells along the width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Getter for the height of the grid
+	 * @return number of cells along the height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Method to check whether position is inside grid or not
+	 * @param x x coordinate to check
+	 * @param y y coordinate to check
+	 * @return whether position is inside grid or not
+	 */
+	public boolean isInside(int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height;
+	}
+
+	/**
+	 * Getter for the state of a cell, the position must be inside the grid
+	 * @param x x coordinate of the cell
+	 * @param y y coordinate of the cell
+	 * @return one of the WorldGrid states
+	 */
+	public byte get(int x, int y) {
+		byte[] chunk = chunks[(y >>> CHUNK_BITS) * chunksX + (x >>> CHUNK_BITS)];
+		return chunk == null ? WorldGrid.EMPTY : chunk[(y & CHUNK_MASK) << CHUNK_BITS | (x & CHUNK_MASK)];
+	}
+
+	/**
+	 * States of the four neighbors of a snake's head, the way SnakeSensors keeps them
+	 * @param snake index of the snake
+	 * @return 4 bits for each direction in ordinal order, WorldGrid states or LocalInformation.OUTSIDE
+	 */
+	public int getNeighbors(int snake) {
+		int x = getHeadX(snake), y = getHeadY(snake), neighbors = 0;
+		for (Direction dir : DIRECTIONS) {
+			int nx = x + dir.getDx(), ny = y + dir.getDy();
+			int state = isInside(nx, ny) ? get(nx, ny) : LocalInformation.OUTSIDE;
+			neighbors |= state << (dir.ordinal() * 4);
+		}
+		return neighbors;
+	}
+
+	/**
+	 * Getter for the number of snakes
+	 * @return snake count, snakes are numbered from 0 as in the game
+	 */
+	public int getSnakeCount() {
+		return snakeCount;
+	}
+
+	/**
+	 * Getter for the number of food on the map
+	 * @return food count, it only goes down since no food is spawned
+	 */
+	public int getFoodCount() {
+		return foodCount;
+	}
+
+	/**
+	 * Getter for the size of a snake
+	 * @param snake index of the snake
+	 * @return number of parts
+	 */
+	public int getSize(int snake) {
+		return (int) (body(snake)[SHAPE] >>> 32);
+	}
+
+	/**
+	 * Getter for the x coordinate of a part of a snake
+	 * @param snake index of the snake
+	 * @param index index of the part, 0 is the head and size-1 is the tail
+	 * @return x coordinate of the part
+	 */
+	public int getX(int snake, int index) {
+		return (int) part(body(snake), index);
+	}
+
+	/**
+	 * Getter for the y coordinate of a part of a snake
+	 * @param snake index of the snake
+	 * @param index index of the part, 0 is the head and size-1 is the tail
+	 * @return y coordinate of the part
+	 */
+	public int getY(int snake, int index) {
+		return (int) (part(body(snake), index) >> 32);
+	}
+
+	/**
+	 * Getter for the x coordinate of the head of a snake
+	 * @param snake index of the snake
+	 * @return x coordinate of the head
+	 */
+	public int getHeadX(int snake) {
+		return getX(snake, 0);
+	}
+
+	/**
+	 * Getter for the y coordinate of the head of a snake
+	 * @param snake index of the snake
+	 * @return y coordinate of the head
+	 */
+	public int getHeadY(int snake) {
+		return getY(snake, 0);
+	}
+
+	/**
+	 * Executes the action of a snake with the rules of SnakeSimulator: a move needs an empty cell, a move or an eat
+	 * into food eats it, and a snake whose target is taken stays. A snake smaller than 2 cannot reproduce and stays.
+	 * @param snake index of the snake
+	 * @param action the action, null is the same as staying
+	 * @return false if the snake stayed
+	 */
+	public boolean apply(int snake, Action action) {
+		if (action == null || action.getType() == Action.Type.STAY) {
+			return false;
+		}
+		if (action.getType() == Action.Type.REPRODUCE) {
+			return reproduce(snake);
+		}
+		int headX = getHeadX(snake), headY = getHeadY(snake);
+		int x = headX + action.getDirection().getDx(), y = headY + action.getDirection().getDy();
+		byte target = isInside(x, y) ? get(x, y) : WorldGrid.BODY;
+		if (target == WorldGrid.EMPTY && action.getType() == Action.Type.MOVE) {
+			long[] body = writableBody(snake);
+			set(headX, headY, WorldGrid.BODY);
+			long tail = part(body, getSize(snake) - 1);
+			set((int) tail, (int) (tail >> 32), WorldGrid.EMPTY);
+			// new head is written over the slot of the old tail
+			push(body, pack(x, y));
+			set(x, y, WorldGrid.HEAD);
+			return true;
+		} else if (target == WorldGrid.FOOD) {
+			long[] body = writableBody(snake);
+			int size = (int) (body[SHAPE] >>> 32);
+			if (size == body.length - PARTS) {
+				body = grow(snake, body);
+			}
+			set(headX, headY, WorldGrid.BODY);
+			push(body, pack(x, y));
+			body[SHAPE] += 1L << 32;
+			set(x, y, WorldGrid.HEAD);
+			foodCount--;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Divides a snake, its tail half becomes a new snake whose head is the old tail, as in Snake.reproduce()
+	 * @param snake index of the snake
+	 * @return false if the snake is too small to divide
+	 */
+	private boolean reproduce(int snake) {
+		int size = getSize(snake), half = size / 2;
+		if (half == 0) {
+			return false;
+		}
+		long[] body = writableBody(snake);
+		long[] child = newBody(half);
+		// new snake's parts are the current snake's tail parts in reverse order
+		for (int i = 0; i < half; i++) {
+			child[PARTS + i] = part(body, size - 1 - i);
+		}
+		body[SHAPE] -= (long) half << 32;
+		addSnake(child);
+		set((int) child[PARTS], (int) (child[PARTS] >> 32), WorldGrid.HEAD);
+		return true;
+	}
+
+	/**
+	 * Setter for the state of a cell, the chunk of the cell is copied first if this snapshot does not own it
+	 * @param x x coordinate of the cell
+	 * @param y y coordinate of the cell
+	 * @param state one of the WorldGrid states
+	 */
+	private void set(int x, int y, byte state) {
+		int c = (y >>> CHUNK_BITS) * chunksX + (x >>> CHUNK_BITS);
+		byte[] chunk = chunks[c];
+		if (chunkOwners[c] != id) {
+			chunk = chunk == null ? new byte[1 << (CHUNK_BITS * 2)] : chunk.clone();
+			chunks[c] = chunk;
+			chunkOwners[c] = id;
+		}
+		chunk[(y & CHUNK_MASK) << CHUNK_BITS | (x & CHUNK_MASK)] = state;
+	}
+
+	/**
+	 * Getter for the body array of a snake, it must not be changed
+	 * @param snake index of the snake
+	 * @return the body
+	 */
+	private long[] body(int snake) {
+		return blocks[snake >>> BLOCK_BITS][snake & BLOCK_MASK];
+	}
+
+	/**
+	 * Getter for the body array of a snake that may be changed, the block and the body are copied first if this
+	 * snapshot does not own them
+	 * @param snake index of the snake
+	 * @return the body
+	 */
+	private long[] writableBody(int snake) {
+		int b = snake >>> BLOCK_BITS;
+		if (blockOwners[b] != id) {
+			blocks[b] = blocks[b].clone();
+			blockOwners[b] = id;
+		}
+		long[] body = blocks[b][snake & BLOCK_MASK];
+		if (body[OWNER] != id) {
+			body = body.clone();
+			body[OWNER] = id;
+			blocks[b][snake & BLOCK_MASK] = body;
+		}
+		return body;
+	}
+
+	/**
+	 * Creates the body of a new snake owned by this snapshot, with the head in slot 0
+	 * @param size number of parts the snake will have
+	 * @return the body, its parts are not set
+	 */
+	private long[] newBody(int size) {
+		int slots = Integer.highestOneBit(Math.max(size, 2) - 1) << 1;
+		long[] body = new long[PARTS + slots];
+		body[OWNER] = id;
+		body[SHAPE] = (long) size << 32;
+		return body;
+	}
+
+	/**
+	 * Gives a snake a body with twice as many slots, parts are copied so that the head is at slot 0 again
+	 * @param snake index of the snake
+	 * @param body current body of the snake, owned by this snapshot
+	 * @return the new body
+	 */
+	private long[] grow(int snake, long[] body) {
+		int size = (int) (body[SHAPE] >>> 32);
+		long[] grown = new long[PARTS + (body.length - PARTS) * 2];
+		for (int i = 0; i < size; i++) {
+			grown[PARTS + i] = part(body, i);
+		}
+		grown[OWNER] = id;
+		grown[SHAPE] = (long) size << 32;
+		blocks[snake >>> BLOCK_BITS][snake & BLOCK_MASK] = grown;
+		return grown;
+	}
+
+	/**
+	 * Adds a snake after the last one
+	 * @param body body of the snake, owned by this snapshot
+	 */
+	private void addSnake(long[] body) {
+		int b = snakeCount >>> BLOCK_BITS;
+		if (b == blocks.length) {
+			blocks = Arrays.copyOf(blocks, b * 2);
+			blockOwners = Arrays.copyOf(blockOwners, b * 2);
+		}
+		if (blocks[b] == null) {
+			blocks[b] = new long[1 << BLOCK_BITS][];
+			blockOwners[b] = id;
+		} else if (blockOwners[b] != id) {
+			blocks[b] = blocks[b].clone();
+			blockOwners[b] = id;
+		}
+		blocks[b][snakeCount & BLOCK_MASK] = body;
+		snakeCount++;
+	}
+
+	/**
+	 * Getter for a part in a body
+	 * @param body the body
+	 * @param index index of the part, 0 is the head
+	 * @return packed position of the part
+	 */
+	private static long part(long[] body, int index) {
+		return body[PARTS + (((int) body[SHAPE] + index) & (body.length - PARTS - 1))];
+	}
+
+	/**
+	 * Puts a new head in front of a body, into the slot before the old head, the size is not changed
+	 * @param body the body, owned by this snapshot
+	 * @param head packed position of the new head
+	 */
+	private static void push(long[] body, long head) {
+		int slot = ((int) body[SHAPE] - 1) & (body.length - PARTS - 1);
+		body[SHAPE] = (body[SHAPE] & 0xFFFFFFFF00000000L) | slot;
+		body[PARTS + slot] = head;
+	}
+
+	/**
+	 * Packs a position into one number, y in the upper and x in the lower half
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return the packed position
+	 */
+	private static long pack(int x, int y) {
+		return (long) y << 32 | (x & 0xFFFFFFFFL);
+	}
+}